@@ -0,0 +1,56 @@
+package application;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// Measures full backups and restores of corpora of different sizes
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class ArticleBackupBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int articles;
+
+    private Login login;
+    private File backupFile;
+    private File restoreFile;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        login = Login.getInstance();
+        BenchmarkData.loadArticles(articles);
+        backupFile = File.createTempFile("benchmark", ".bak");
+        restoreFile = File.createTempFile("benchmark", ".bak");
+        login.backupHelpArticles(restoreFile.getAbsolutePath());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        ArticleRepository.getInstance().clear();
+        backupFile.delete();
+        restoreFile.delete();
+    }
+
+    @Benchmark
+    public long backup() {
+        login.backupHelpArticles(backupFile.getAbsolutePath());
+        return backupFile.length();
+    }
+
+    @Benchmark
+    public RestoreResult restoreReplace() {
+        return login.restoreHelpArticles(restoreFile.getAbsolutePath(), false);
+    }
+
+    @Benchmark
+    public RestoreResult restoreMerge() {
+        return login.restoreHelpArticles(restoreFile.getAbsolutePath(), true);
+    }
+}
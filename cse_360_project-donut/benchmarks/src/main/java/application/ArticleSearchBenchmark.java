@@ -0,0 +1,91 @@
+package application;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Measures ranked search and group listing over corpora of different sizes
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArticleSearchBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int articles;
+
+    private User user;
+    private String singleWord;
+    private String twoWords;
+    private String misspelledWord;
+    private List<String> groups;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        BenchmarkData.loadArticles(articles);
+        user = new User("reader", "password", "Student");
+        singleWord = BenchmarkData.word(7);
+        twoWords = BenchmarkData.word(7) + " " + BenchmarkData.word(11);
+        misspelledWord = BenchmarkData.word(1234).replace("word", "wrd");
+        groups = Arrays.asList(BenchmarkData.group(3), BenchmarkData.group(5));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        ArticleRepository.getInstance().clear();
+    }
+
+    @Benchmark
+    public List<User.HelpArticle> searchSingleWord() {
+        return user.searchHelpArticles(singleWord);
+    }
+
+    @Benchmark
+    public List<User.HelpArticle> searchTwoWords() {
+        return user.searchHelpArticles(twoWords);
+    }
+
+    @Benchmark
+    public List<User.HelpArticle> searchTopTen() {
+        return user.searchHelpArticles(singleWord, 10);
+    }
+
+    @Benchmark
+    public List<User.HelpArticle> searchCommonTopTen() {
+        return user.searchHelpArticles("article", 10); // Every body contains it, so every article is scored
+    }
+
+    @Benchmark
+    public List<User.HelpArticle> searchMiss() {
+        return user.searchHelpArticles("missing");
+    }
+
+    @Benchmark
+    public List<User.HelpArticle> searchMisspelledTopTen() {
+        return user.searchHelpArticles(misspelledWord, 10);
+    }
+
+    @Benchmark
+    public List<String> suggestPrefix() {
+        return user.suggestHelpArticles(singleWord.substring(0, 3), 8);
+    }
+
+    @Benchmark
+    public List<User.HelpArticle> byGroup() {
+        return user.getHelpArticlesByGroup(groups.get(0));
+    }
+
+    @Benchmark
+    public List<User.HelpArticle> byAllGroups() {
+        return user.getHelpArticlesByGroups(groups, true);
+    }
+
+    @Benchmark
+    public List<User.HelpArticle> byAnyGroup() {
+        return user.getHelpArticlesByGroups(groups, false);
+    }
+}
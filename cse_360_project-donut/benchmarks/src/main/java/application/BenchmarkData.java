@@ -0,0 +1,52 @@
+package application;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+// Generates repeatable users and help articles for the benchmarks
+public class BenchmarkData {
+
+    static final int VOCABULARY_SIZE = 2000; // Distinct words used in titles and keywords
+    static final int GROUP_COUNT = 50; // Distinct article groups
+
+    private BenchmarkData() {} // Static helpers only
+
+    // Word number i of the synthetic vocabulary
+    static String word(int i) {
+        return "word" + i;
+    }
+
+    // Group number i of the synthetic groups
+    static String group(int i) {
+        return "group" + i;
+    }
+
+    // Fill the shared repository with articles visible to every user
+    static void loadArticles(int count) {
+        ArticleRepository repository = ArticleRepository.getInstance();
+        repository.clear();
+        Random random = new Random(42);
+        for (int i = 0; i < count; i++) {
+            repository.add(article(i, random), true);
+        }
+    }
+
+    // One synthetic article with a few title words, keywords and groups
+    static User.HelpArticle article(long id, Random random) {
+        String title = "Article " + id + " " + word(random.nextInt(VOCABULARY_SIZE)) + " " + word(random.nextInt(VOCABULARY_SIZE));
+        List<String> keywords = Arrays.asList(word(random.nextInt(VOCABULARY_SIZE)), word(random.nextInt(VOCABULARY_SIZE)));
+        List<String> groups = Arrays.asList(group(random.nextInt(GROUP_COUNT)), group(random.nextInt(GROUP_COUNT)));
+        return new User.HelpArticle(id, title, "Description of article " + id, keywords,
+                "Body of article " + id + " " + word(random.nextInt(VOCABULARY_SIZE)), new ArrayList<>(), groups, "Beginner");
+    }
+
+    // Remove every registered user
+    static void clearUsers() {
+        Login login = Login.getInstance();
+        for (User user : login.listUsers()) {
+            login.deleteUser(user.getUsername());
+        }
+    }
+}
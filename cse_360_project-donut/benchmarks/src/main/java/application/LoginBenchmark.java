@@ -0,0 +1,66 @@
+package application;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+// Measures Login.authenticate against registries of different sizes
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoginBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int users;
+
+    // PBKDF2 cost of the registered passwords; the default keeps setup of large registries fast
+    @Param({"1000"})
+    public int hashIterations;
+
+    private Login login;
+    private String hitUsername;
+    private String hitPassword;
+    private String missUsername;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        login = Login.getInstance();
+        PasswordHasher.setIterations(hashIterations);
+        BenchmarkData.clearUsers();
+        for (int i = 0; i < users; i++) {
+            login.registerUser("user" + i, "password" + i, "Student", false, null);
+        }
+        User expired = login.registerUser("expired", "otpPassword", "Student", true, LocalDateTime.now().minusDays(1));
+        while (!expired.isOtpExpired()) {
+            Thread.onSpinWait(); // The expiry wheel flags it on its next tick; measure the expired path only
+        }
+        hitUsername = "user" + (users / 2);
+        hitPassword = "password" + (users / 2);
+        missUsername = "nobody";
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkData.clearUsers();
+    }
+
+    @Benchmark
+    public boolean authenticateHit() {
+        return login.authenticate(hitUsername, hitPassword);
+    }
+
+    @Benchmark
+    public boolean authenticateMiss() {
+        return login.authenticate(missUsername, hitPassword);
+    }
+
+    // Rejected by a flag read, without hashing or printing anything
+    @Benchmark
+    public boolean authenticateOtpExpired() {
+        return login.authenticate("expired", "otpPassword");
+    }
+}
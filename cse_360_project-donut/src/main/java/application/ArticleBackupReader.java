@@ -0,0 +1,165 @@
+package application;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+// Reads help articles back from a file written by ArticleBackupWriter, one record at a time
+public class ArticleBackupReader implements Closeable {
+
+    private final FileChannel channel;
+    private ByteBuffer chunk = ByteBuffer.allocate(ArticleBackupWriter.CHUNK_SIZE);
+    private boolean ended = false;
+    private long bytesRead = 0;
+    private byte kind = ArticleBackupWriter.FULL;
+    private long generation = 0;
+    private long parentGeneration = 0;
+    private User.HelpArticle article; // Article held by the latest ARTICLE record
+    private long removedId; // ID held by the latest REMOVE record
+
+    // Check whether a file starts with the streaming backup header
+    public static boolean isBackupFile(String filename) throws IOException {
+        try (FileChannel file = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(4);
+            while (magic.hasRemaining() && file.read(magic) >= 0) {
+                // Keep reading until the magic number is complete or the file ends
+            }
+            return !magic.hasRemaining() && magic.getInt(0) == ArticleBackupWriter.MAGIC;
+        }
+    }
+
+    // Open a backup file and validate its header
+    public ArticleBackupReader(String filename) throws IOException {
+        channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ);
+        chunk.limit(0);
+        try {
+            require(6);
+            if (chunk.getInt() != ArticleBackupWriter.MAGIC) {
+                throw new IOException("Not an article backup file: " + filename);
+            }
+            short version = chunk.getShort();
+            if (version == ArticleBackupWriter.VERSION) {
+                require(1 + 8 + 8);
+                kind = chunk.get();
+                generation = chunk.getLong();
+                parentGeneration = chunk.getLong();
+            } else if (version != 1) { // Version 1 files are full backups without generations
+                throw new IOException("Unsupported backup version " + version);
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // Read the next article of a full backup, or null once the end marker is reached
+    public User.HelpArticle read() throws IOException {
+        byte type = next();
+        if (type == ArticleBackupWriter.END) {
+            return null;
+        }
+        if (type != ArticleBackupWriter.ARTICLE) {
+            throw new IOException("Unexpected change record in a full backup");
+        }
+        return article;
+    }
+
+    // Read the next record and return its type; END is returned once the end marker is reached
+    public byte next() throws IOException {
+        if (ended) {
+            return ArticleBackupWriter.END;
+        }
+        require(4);
+        int length = chunk.getInt();
+        long left = channel.size() - bytesRead + chunk.remaining(); // Bytes of the file not yet consumed
+        if (length < 1 || length > left) {
+            // Checked before the buffer grows to fit the record, so a corrupt length cannot exhaust memory
+            throw new IOException("Corrupt backup record length " + length);
+        }
+        require(length);
+        byte type = chunk.get();
+        ByteBuffer record = chunk.slice();
+        record.limit(length - 1);
+        chunk.position(chunk.position() + length - 1);
+        try {
+            switch (type) {
+                case ArticleBackupWriter.END:
+                    ended = true;
+                    break;
+                case ArticleBackupWriter.ARTICLE:
+                    article = RecordCodec.getArticle(record);
+                    break;
+                case ArticleBackupWriter.REMOVE:
+                    removedId = record.getLong();
+                    break;
+                case ArticleBackupWriter.CLEAR:
+                    break;
+                default:
+                    throw new IOException("Unknown backup record type " + type);
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Corrupt backup record");
+        }
+        return type;
+    }
+
+    // Article held by the latest ARTICLE record
+    public User.HelpArticle getArticle() {
+        return article;
+    }
+
+    // ID held by the latest REMOVE record
+    public long getRemovedId() {
+        return removedId;
+    }
+
+    public boolean isDelta() {
+        return kind == ArticleBackupWriter.DELTA;
+    }
+
+    public long getGeneration() {
+        return generation;
+    }
+
+    // Generation of the backup a delta builds on
+    public long getParentGeneration() {
+        return parentGeneration;
+    }
+
+    // Bytes read from the file so far
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // Make sure at least n bytes are buffered, reading the next chunk (or growing the buffer) as needed
+    private void require(int n) throws IOException {
+        if (chunk.remaining() >= n) {
+            return;
+        }
+        if (n > chunk.capacity()) {
+            ByteBuffer larger = ByteBuffer.allocate(n);
+            larger.put(chunk);
+            chunk = larger;
+        } else {
+            chunk.compact();
+        }
+        while (chunk.position() < n) {
+            int read = channel.read(chunk);
+            if (read < 0) {
+                throw new EOFException("Backup file is truncated");
+            }
+            bytesRead += read;
+        }
+        chunk.flip();
+    }
+}
@@ -0,0 +1,107 @@
+package application;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+// Streams help articles to a backup file as length-prefixed binary records, one chunk at a time
+public class ArticleBackupWriter implements Closeable {
+
+    static final int MAGIC = 0x444E5554; // "DNUT" at the start of every backup file
+    static final short VERSION = 2; // Version 2 added the backup kind and generations to the header
+    static final byte FULL = 0; // Backup kind holding every article
+    static final byte DELTA = 1; // Backup kind holding the changes since its parent backup
+    static final byte END = 0; // Record type marking a completely written backup
+    static final byte ARTICLE = 1; // Record type holding one added or updated help article
+    static final byte REMOVE = 2; // Record type holding the ID of a removed help article
+    static final byte CLEAR = 3; // Record type marking that every article was removed
+    static final int CHUNK_SIZE = 64 * 1024; // Bytes buffered before each channel write
+
+    private final FileChannel channel;
+    private final ByteBuffer chunk = ByteBuffer.allocateDirect(CHUNK_SIZE);
+    private long articlesWritten = 0;
+    private long bytesWritten = 0;
+
+    // Create (or truncate) the backup file and write its header; deltas name the generation they build on
+    public ArticleBackupWriter(String filename, byte kind, long generation, long parentGeneration) throws IOException {
+        channel = FileChannel.open(Paths.get(filename),
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        chunk.putInt(MAGIC).putShort(VERSION).put(kind).putLong(generation).putLong(parentGeneration);
+    }
+
+    // Append one article as a record: [int length][byte type][article fields]
+    public void write(User.HelpArticle article) throws IOException {
+        byte[] encoded = RecordCodec.encodeArticle(article); // The length comes from the bytes actually encoded
+        int length = 1 + encoded.length;
+        if (4 + length > CHUNK_SIZE) {
+            // Oversized records bypass the chunk buffer
+            flush();
+            ByteBuffer record = ByteBuffer.allocate(4 + length);
+            record.putInt(length).put(ARTICLE).put(encoded);
+            record.flip();
+            writeFully(record);
+        } else {
+            if (chunk.remaining() < 4 + length) {
+                flush();
+            }
+            chunk.putInt(length).put(ARTICLE).put(encoded);
+        }
+        articlesWritten++;
+    }
+
+    // Append a record for a removed article
+    public void writeRemove(long id) throws IOException {
+        if (chunk.remaining() < 4 + 1 + 8) {
+            flush();
+        }
+        chunk.putInt(1 + 8).put(REMOVE).putLong(id);
+    }
+
+    // Append a record marking that every article was removed
+    public void writeClear() throws IOException {
+        if (chunk.remaining() < 4 + 1) {
+            flush();
+        }
+        chunk.putInt(1).put(CLEAR);
+    }
+
+    // Write the end marker and force the backup to disk; a file without it is treated as truncated
+    public void finish() throws IOException {
+        if (chunk.remaining() < 4 + 1) {
+            flush();
+        }
+        chunk.putInt(1).put(END);
+        flush();
+        channel.force(false);
+    }
+
+    public long getArticlesWritten() {
+        return articlesWritten;
+    }
+
+    // Bytes handed to the file so far, excluding any still buffered
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // Write out the buffered chunk
+    private void flush() throws IOException {
+        chunk.flip();
+        writeFully(chunk);
+        chunk.clear();
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            bytesWritten += channel.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package application;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Append-only file of article bodies, memory-mapped so a body is only decoded when it is read.
+// The file starts with the offset where the next body goes; bodies follow as UTF-8 bytes.
+// Replaced or removed bodies are not reclaimed.
+public class ArticleBodyStore implements Closeable {
+
+    static final int REGION_SIZE = 64 * 1024 * 1024; // Bytes mapped at a time; a body never spans two regions
+    private static final int HEADER_SIZE = 8; // Offset of the end of the stored bodies
+
+    // Location of one stored body; immutable, so articles can share it between threads without locking
+    public static class Body {
+        private final ArticleBodyStore store;
+        private final long offset;
+        private final int length;
+
+        Body(ArticleBodyStore store, long offset, int length) {
+            this.store = store;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        public ArticleBodyStore getStore() { return store; }
+        public long getOffset() { return offset; }
+        public int getLength() { return length; }
+
+        // Decode the body from the mapped file
+        public String read() {
+            return store.read(offset, length);
+        }
+    }
+
+    private final FileChannel channel;
+    private final CopyOnWriteArrayList<MappedByteBuffer> regions = new CopyOnWriteArrayList<>(); // Mapped regions, in file order
+    private long end; // Offset where the next body is written
+
+    // Open (or create) a body file
+    public ArticleBodyStore(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long size = channel.size();
+            for (long position = 0; position < size; position += REGION_SIZE) {
+                mapRegion();
+            }
+            if (regions.isEmpty()) {
+                mapRegion();
+                setEnd(HEADER_SIZE);
+            } else {
+                end = regions.get(0).getLong(0);
+                if (end < HEADER_SIZE || end > (long) regions.size() * REGION_SIZE) {
+                    throw new IOException("Corrupt article body file " + file);
+                }
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // Store a body and return where it is; bodies larger than a region cannot be stored
+    public synchronized Body put(String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > REGION_SIZE) {
+            throw new IOException("Article body of " + bytes.length + " bytes is too large to store");
+        }
+        long offset = end;
+        if (offset % REGION_SIZE + bytes.length > REGION_SIZE) {
+            offset = (offset / REGION_SIZE + 1) * REGION_SIZE; // Start the next region instead of spanning two
+        }
+        while (offset + bytes.length > (long) regions.size() * REGION_SIZE) {
+            mapRegion();
+        }
+        regions.get((int) (offset / REGION_SIZE)).put((int) (offset % REGION_SIZE), bytes);
+        setEnd(offset + bytes.length);
+        return new Body(this, offset, bytes.length);
+    }
+
+    // Look up a body stored earlier, e.g. by an earlier run whose snapshot recorded its location
+    public Body get(long offset, int length) throws IOException {
+        if (offset < HEADER_SIZE || length < 0 || offset % REGION_SIZE + length > REGION_SIZE || offset + length > getEnd()) {
+            throw new IOException("No article body stored at " + offset);
+        }
+        return new Body(this, offset, length);
+    }
+
+    // Write every stored body to disk, so locations recorded elsewhere stay valid after a crash;
+    // returns the end of the bodies now on disk
+    public synchronized long force() {
+        for (MappedByteBuffer region : regions) {
+            region.force();
+        }
+        return end;
+    }
+
+    // Number of bytes taken by stored bodies, including replaced ones
+    public synchronized long getEnd() {
+        return end;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        force();
+        channel.close(); // The mappings stay valid until they are garbage collected
+    }
+
+    // Decode a body; reads use absolute positions, so they need no lock
+    private String read(long offset, int length) {
+        byte[] bytes = new byte[length];
+        regions.get((int) (offset / REGION_SIZE)).get((int) (offset % REGION_SIZE), bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Helper to map the next region, growing the file to cover it
+    private void mapRegion() throws IOException {
+        regions.add(channel.map(FileChannel.MapMode.READ_WRITE, (long) regions.size() * REGION_SIZE, REGION_SIZE));
+    }
+
+    // Helper to record the end of the stored bodies in the header
+    private void setEnd(long newEnd) {
+        end = newEnd;
+        regions.get(0).putLong(0, newEnd);
+    }
+}
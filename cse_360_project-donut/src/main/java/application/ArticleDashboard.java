@@ -0,0 +1,292 @@
+package application;
+
+import javafx.concurrent.Task;
+import javafx.scene.Scene;
+import javafx.scene.control.*;
+import javafx.scene.layout.VBox;
+import javafx.stage.FileChooser;
+import javafx.stage.Stage;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Article management dashboard shared by instructors and admins; its scene is built once and rebound to each user
+public class ArticleDashboard {
+
+    private final Stage window; // Primary stage, owner of the file dialogs
+    private final Login loginInstance = Login.getInstance();
+    private final Scene scene;
+    private final Label headingLabel = new Label();
+
+    // Input fields for article details
+    private final TextField titleField = new TextField();
+    private final TextField descriptionField = new TextField();
+    private final TextField keywordsField = new TextField();
+    private final TextArea bodyArea = new TextArea();
+    private final TextField groupsField = new TextField();
+    private final TextField levelField = new TextField();
+
+    // Search and listing components
+    private final TextField searchField = new TextField();
+    private final ArticleListModel articleList = new ArticleListModel(); // Lists article IDs, loading titles per visible row
+    private final SearchSuggestions suggestions = new SearchSuggestions(searchField, articleList::showSearch);
+
+    // Progress components for background backup and restore
+    private final ProgressBar backupProgressBar = new ProgressBar(0);
+    private final Label backupProgressLabel = new Label();
+    private final Button cancelBackupButton = new Button("Cancel");
+    private Task<?> runningTask; // Backup or restore in progress, if any
+
+    private User currentUser; // User the dashboard is bound to
+
+    // Build the dashboard's node graph and scene once
+    public ArticleDashboard(Stage window, Runnable onLogout) {
+        this.window = window;
+        VBox vbox = new VBox(10);
+
+        titleField.setPromptText("Title");
+        descriptionField.setPromptText("Description");
+        keywordsField.setPromptText("Keywords (comma-separated)");
+        bodyArea.setPromptText("Body of the article");
+        groupsField.setPromptText("Groups (comma-separated)");
+        levelField.setPromptText("Level (Beginner, Intermediate, Advanced, Expert)");
+
+        // Button to add a new article
+        Button addArticleButton = new Button("Add Article");
+        addArticleButton.setOnAction(e -> addArticle(
+                titleField.getText(), descriptionField.getText(),
+                Arrays.asList(keywordsField.getText().split(",")),
+                bodyArea.getText(), new ArrayList<>(),
+                Arrays.asList(groupsField.getText().split(",")), levelField.getText()));
+
+        searchField.setPromptText("Enter keyword to search");
+        Button searchButton = new Button("Search Articles");
+        Button listArticlesButton = new Button("List All Articles");
+
+        // Event handler for the search button
+        searchButton.setOnAction(e -> {
+            String keyword = searchField.getText();
+            if (keyword != null && !keyword.isEmpty()) {
+                articleList.showSearch(keyword.trim());
+            }
+        });
+
+        // Event handler for listing all articles
+        listArticlesButton.setOnAction(e -> articleList.showAll());
+
+        // Button to delete the selected article; the list drops it when the repository reports the removal
+        Button deleteArticleButton = new Button("Delete Selected Article");
+        deleteArticleButton.setOnAction(e -> {
+            Long articleId = articleList.getSelectedId();
+            if (articleId != null) {
+                User.HelpArticle article = ArticleRepository.getInstance().get(articleId);
+                currentUser.removeHelpArticle(articleId); // Remove article from user's list
+                System.out.println("Article Deleted: " + (article == null ? articleId : article.getTitle()));
+            } else {
+                System.out.println("No article selected for deletion.");
+            }
+        });
+
+        // Buttons for backup and restore functionality, run in the background with progress
+        cancelBackupButton.setDisable(true);
+        Button backupButton = new Button("Backup Articles");
+        backupButton.setOnAction(e -> backupArticles());
+
+        Button backupChangesButton = new Button("Backup Changes");
+        backupChangesButton.setOnAction(e -> backupArticleChanges());
+
+        Button restoreButton = new Button("Restore Articles");
+        restoreButton.setOnAction(e -> restoreArticles());
+
+        // Logout button
+        Button logoutButton = new Button("Logout");
+        logoutButton.setOnAction(e -> {
+            System.out.println("Logging out.");
+            onLogout.run(); // Return to login screen
+        });
+
+        // Add components to the layout
+        vbox.getChildren().addAll(
+                headingLabel,
+                titleField, descriptionField, keywordsField, bodyArea, groupsField, levelField,
+                addArticleButton,
+                new Separator(),
+                searchField, searchButton, listArticlesButton, articleList.getListView(), deleteArticleButton,
+                new Separator(),
+                backupButton, backupChangesButton, restoreButton, backupProgressBar, backupProgressLabel, cancelBackupButton,
+                logoutButton
+        );
+        scene = new Scene(vbox, 600, 800);
+    }
+
+    // Release the dashboard when its user logs out, so the article list stops following repository changes
+    public void unbind() {
+        currentUser = null;
+        articleList.detach();
+    }
+
+    // Rebind the dashboard to a user, clearing whatever the previous user left in it
+    public Scene bind(User user, String heading) {
+        currentUser = user;
+        headingLabel.setText(heading);
+        titleField.clear();
+        descriptionField.clear();
+        keywordsField.clear();
+        bodyArea.clear();
+        groupsField.clear();
+        levelField.clear();
+        searchField.clear();
+        articleList.setUser(user);
+        suggestions.setUser(user);
+        if (runningTask == null) {
+            backupProgressBar.setProgress(0);
+            backupProgressLabel.setText("");
+        }
+        return scene;
+    }
+
+    // Method to add a new article to the current user's list
+    private void addArticle(String title, String description, List<String> keywords, String body, List<String> links, List<String> groups, String level) {
+        if (currentUser != null) {
+            User.HelpArticle newArticle = new User.HelpArticle(ArticleIdAllocator.getInstance().nextId(), title, description, keywords, body, links, groups, level);
+            currentUser.addHelpArticle(newArticle); // Add the new article
+            System.out.println("Article Added: " + title);
+        } else {
+            System.out.println("No user is currently logged in.");
+        }
+    }
+
+    // Method to backup articles to a file on a background task, reporting progress in the dashboard
+    private void backupArticles() {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Save Backup");
+        File file = fileChooser.showSaveDialog(window); // Show save dialog
+        if (file != null) {
+            long total = Math.max(1, ArticleRepository.getInstance().size());
+            Task<Boolean> task = new Task<>() {
+                @Override
+                protected Boolean call() {
+                    return loginInstance.backupHelpArticles(file.getAbsolutePath(), (articles, bytes) -> {
+                        updateProgress(articles, total);
+                        updateMessage("Backing up: " + articles + " articles, " + formatBytes(bytes) + " written");
+                        return !isCancelled();
+                    });
+                }
+            };
+            runInBackground(task, completed -> backupProgressLabel.setText(completed ? "Backup completed." : "Backup failed."));
+        }
+    }
+
+    // Method to backup only the changes since the previous backup, on a background task
+    private void backupArticleChanges() {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Save Incremental Backup");
+        File file = fileChooser.showSaveDialog(window); // Show save dialog
+        if (file != null) {
+            long total = Math.max(1, ArticleRepository.getInstance().getChangedIds().size());
+            Task<Boolean> task = new Task<>() {
+                @Override
+                protected Boolean call() {
+                    return loginInstance.backupHelpArticleChanges(file.getAbsolutePath(), (articles, bytes) -> {
+                        updateProgress(articles, total);
+                        updateMessage("Backing up changes: " + articles + " articles, " + formatBytes(bytes) + " written");
+                        return !isCancelled();
+                    });
+                }
+            };
+            runInBackground(task, completed -> backupProgressLabel.setText(completed
+                    ? "Incremental backup completed." : "Incremental backup failed. Take a full backup first."));
+        }
+    }
+
+    // Method to restore articles from a full backup and any incremental backups taken after it, on a background task
+    private void restoreArticles() {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Open Backup File");
+        File file = fileChooser.showOpenDialog(window); // Show open dialog
+        if (file != null) {
+            // Incremental backups are optional; the restore puts them in chain order
+            fileChooser.setTitle("Open Incremental Backups (cancel for none)");
+            List<File> deltaFiles = fileChooser.showOpenMultipleDialog(window);
+            List<String> deltaFilenames = new ArrayList<>();
+            long deltaBytes = 0;
+            if (deltaFiles != null) {
+                for (File deltaFile : deltaFiles) {
+                    deltaFilenames.add(deltaFile.getAbsolutePath());
+                    deltaBytes += deltaFile.length();
+                }
+            }
+            long totalBytes = file.length() + deltaBytes;
+            // Confirmation dialog for merge option
+            Alert alert = new Alert(Alert.AlertType.CONFIRMATION, "Do you want to merge with existing articles?", ButtonType.YES, ButtonType.NO);
+            alert.showAndWait().ifPresent(response -> {
+                boolean merge = response == ButtonType.YES;
+                long total = Math.max(1, totalBytes);
+                Task<RestoreResult> task = new Task<>() {
+                    @Override
+                    protected RestoreResult call() {
+                        return loginInstance.restoreHelpArticles(file.getAbsolutePath(), deltaFilenames, merge, (articles, bytes) -> {
+                            updateProgress(bytes, total);
+                            updateMessage("Restoring: " + articles + " articles, " + formatBytes(bytes) + " read");
+                            return !isCancelled();
+                        });
+                    }
+                };
+                runInBackground(task, result -> {
+                    backupProgressLabel.setText(result != null ? "Restore completed." : "Restore failed.");
+                    if (result != null) {
+                        new Alert(Alert.AlertType.INFORMATION, "Restore completed: " + result + ".").showAndWait();
+                    }
+                });
+            });
+        }
+    }
+
+    // Method to run a backup or restore task off the JavaFX thread, bound to the progress controls
+    private <T> void runInBackground(Task<T> task, Consumer<T> onSucceeded) {
+        if (runningTask != null) {
+            System.out.println("A backup or restore is already running.");
+            return;
+        }
+        runningTask = task;
+        backupProgressBar.progressProperty().bind(task.progressProperty());
+        backupProgressLabel.textProperty().bind(task.messageProperty());
+        cancelBackupButton.setDisable(false);
+        cancelBackupButton.setOnAction(e -> task.cancel());
+
+        // Unbind the controls before the completion handlers set their own text
+        Runnable release = () -> {
+            runningTask = null;
+            backupProgressBar.progressProperty().unbind();
+            backupProgressLabel.textProperty().unbind();
+            cancelBackupButton.setDisable(true);
+        };
+        task.setOnSucceeded(e -> {
+            release.run();
+            onSucceeded.accept(task.getValue());
+        });
+        task.setOnCancelled(e -> {
+            release.run();
+            backupProgressLabel.setText("Cancelled.");
+        });
+        task.setOnFailed(e -> {
+            release.run();
+            backupProgressLabel.setText("Failed: " + task.getException().getMessage());
+        });
+
+        Thread thread = new Thread(task, "article-backup");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // Helper to format a byte count for progress messages
+    private static String formatBytes(long bytes) {
+        if (bytes < 1024 * 1024) {
+            return (bytes / 1024) + " KB";
+        }
+        return String.format("%.1f MB", bytes / (1024.0 * 1024.0));
+    }
+}
@@ -0,0 +1,82 @@
+package application;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Lock-free allocator of unique, increasing article IDs built from a timestamp, a node ID and a sequence number
+public class ArticleIdAllocator {
+
+    public static final long EPOCH = 1704067200000L; // 2024-01-01T00:00:00Z, start of the timestamp field
+    public static final int NODE_BITS = 10;
+    public static final int SEQUENCE_BITS = 12;
+    public static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private final int nodeId; // Distinguishes IDs handed out by different installations
+    private final long nodeBits; // Node ID shifted into place
+    // Last timestamp and sequence handed out, packed as (timestamp << SEQUENCE_BITS) | sequence
+    private final AtomicLong last = new AtomicLong();
+
+    // Lazily initialized holder, so the singleton is safely published without locking
+    private static class Holder {
+        private static final ArticleIdAllocator INSTANCE = new ArticleIdAllocator(Integer.getInteger("donut.node.id", 0));
+    }
+
+    // Method to get the singleton instance
+    public static ArticleIdAllocator getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    ArticleIdAllocator(int nodeId) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Node ID must be between 0 and " + MAX_NODE_ID);
+        }
+        this.nodeId = nodeId;
+        this.nodeBits = (long) nodeId << SEQUENCE_BITS;
+    }
+
+    public int getNodeId() {
+        return nodeId;
+    }
+
+    // Hand out the next ID; never blocks and never repeats, even if the clock goes backwards
+    public long nextId() {
+        while (true) {
+            long previous = last.get();
+            long now = (System.currentTimeMillis() - EPOCH) << SEQUENCE_BITS; // Sequence 0 of the current millisecond
+            // Within the same or an earlier millisecond, continue from the last ID; a full sequence rolls into the next millisecond
+            long next = now > previous ? now : previous + 1;
+            if (last.compareAndSet(previous, next)) {
+                return compose(next);
+            }
+        }
+    }
+
+    // Make sure IDs handed out later are greater than an ID issued by this node before, e.g. one read back from a backup
+    public void observe(long id) {
+        if (((id >>> SEQUENCE_BITS) & MAX_NODE_ID) != nodeId || id < 0) {
+            return; // Other nodes' IDs differ in the node field, so they can never collide with ours
+        }
+        long state = ((id >>> (NODE_BITS + SEQUENCE_BITS)) << SEQUENCE_BITS) | (id & SEQUENCE_MASK);
+        long previous;
+        while ((previous = last.get()) < state) {
+            if (last.compareAndSet(previous, state)) {
+                return;
+            }
+        }
+    }
+
+    // Milliseconds since EPOCH at which an ID was allocated
+    public static long timestampOf(long id) {
+        return id >>> (NODE_BITS + SEQUENCE_BITS);
+    }
+
+    // Node that allocated an ID
+    public static int nodeOf(long id) {
+        return (int) ((id >>> SEQUENCE_BITS) & MAX_NODE_ID);
+    }
+
+    // Spread the packed timestamp and sequence around the node field
+    private long compose(long state) {
+        return ((state >>> SEQUENCE_BITS) << (NODE_BITS + SEQUENCE_BITS)) | nodeBits | (state & SEQUENCE_MASK);
+    }
+}
@@ -0,0 +1,468 @@
+package application;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.*;
+
+// Streams help articles from JSON Lines or CSV input into the repository in batches
+public class ArticleImporter {
+
+    public static final int DEFAULT_BATCH_SIZE = 1000; // Articles stored and indexed together
+    public static final List<String> LEVELS = Arrays.asList("Beginner", "Intermediate", "Advanced", "Expert");
+
+    public enum Format { JSONL, CSV }
+
+    private final ArticleRepository articleRepository;
+    private final int batchSize;
+
+    public ArticleImporter(ArticleRepository articleRepository, int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        this.articleRepository = articleRepository;
+        this.batchSize = batchSize;
+    }
+
+    // Pick the format from a file name, or null if the extension is not recognised
+    public static Format formatOf(String filename) {
+        String name = filename.toLowerCase(Locale.ROOT);
+        if (name.endsWith(".jsonl") || name.endsWith(".ndjson")) {
+            return Format.JSONL;
+        }
+        if (name.endsWith(".csv")) {
+            return Format.CSV;
+        }
+        return null;
+    }
+
+    // Import every record of the input as a shared article; invalid rows are rejected and reported, not fatal.
+    // Articles of completed batches stay stored if the input turns out to be unreadable part way through.
+    public ImportResult importArticles(Reader input, Format format) throws IOException {
+        long start = System.nanoTime();
+        ImportResult result = new ImportResult();
+        RecordSource source = format == Format.CSV ? new CsvSource(input) : new JsonLinesSource(input);
+        List<User.HelpArticle> batch = new ArrayList<>(batchSize);
+        Map<Long, Long> batchLines = new HashMap<>(); // Article ID -> line it came from, for duplicate reports
+        Map<String, Object> record;
+        while (true) {
+            try {
+                record = source.next();
+            } catch (IllegalArgumentException e) {
+                result.reject(source.line(), e.getMessage()); // Malformed row; the source has skipped past it
+                continue;
+            }
+            if (record == null) {
+                break;
+            }
+            try {
+                User.HelpArticle article = toArticle(record);
+                if (batchLines.putIfAbsent(article.getId(), source.line()) != null) {
+                    result.reject(source.line(), "duplicate id " + article.getId());
+                    continue;
+                }
+                batch.add(article);
+            } catch (IllegalArgumentException e) {
+                result.reject(source.line(), e.getMessage());
+                continue;
+            }
+            if (batch.size() == batchSize) {
+                storeBatch(batch, batchLines, result);
+            }
+        }
+        storeBatch(batch, batchLines, result);
+        result.setElapsedNanos(System.nanoTime() - start);
+        return result;
+    }
+
+    // Store a batch in one repository call, rejecting articles whose ID is already stored
+    private void storeBatch(List<User.HelpArticle> batch, Map<Long, Long> batchLines, ImportResult result) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<User.HelpArticle> existing = articleRepository.addAllIfAbsent(batch, true);
+        for (User.HelpArticle article : existing) {
+            result.reject(batchLines.get(article.getId()), "duplicate id " + article.getId());
+        }
+        result.countImported(batch.size() - existing.size());
+        batch.clear();
+        batchLines.clear();
+    }
+
+    // Validate a record and build its article; throws IllegalArgumentException naming the problem
+    static User.HelpArticle toArticle(Map<String, Object> record) {
+        String title = text(record, "title");
+        if (title.isBlank()) {
+            throw new IllegalArgumentException("missing title");
+        }
+        String level = text(record, "level").trim();
+        if (!level.isEmpty()) {
+            String canonical = null;
+            for (String known : LEVELS) {
+                if (known.equalsIgnoreCase(level)) {
+                    canonical = known;
+                }
+            }
+            if (canonical == null) {
+                throw new IllegalArgumentException("unknown level \"" + level + "\"");
+            }
+            level = canonical;
+        }
+        long id;
+        String idText = text(record, "id").trim();
+        if (idText.isEmpty()) {
+            id = ArticleIdAllocator.getInstance().nextId();
+        } else {
+            try {
+                id = Long.parseLong(idText);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("invalid id \"" + idText + "\"");
+            }
+            if (id <= 0) {
+                throw new IllegalArgumentException("invalid id \"" + idText + "\"");
+            }
+        }
+        return new User.HelpArticle(id, title.trim(), text(record, "description"), list(record, "keywords"),
+                text(record, "body"), list(record, "links"), list(record, "groups"), level);
+    }
+
+    // Helper to read a text field; absent and null fields read as empty
+    private static String text(Map<String, Object> record, String field) {
+        Object value = record.get(field);
+        if (value instanceof List) {
+            throw new IllegalArgumentException(field + " must be a string");
+        }
+        return value == null ? "" : (String) value;
+    }
+
+    // Helper to read a list field given as an array or as a semicolon-separated string
+    private static List<String> list(Map<String, Object> record, String field) {
+        Object value = record.get(field);
+        List<String> items = new ArrayList<>();
+        if (value instanceof List) {
+            for (Object item : (List<?>) value) {
+                if (!(item instanceof String)) {
+                    throw new IllegalArgumentException(field + " must hold strings");
+                }
+                items.add(((String) item).trim());
+            }
+        } else if (value != null) {
+            for (String item : ((String) value).split(";")) {
+                if (!item.isBlank()) {
+                    items.add(item.trim());
+                }
+            }
+        }
+        return items;
+    }
+
+    // Source of raw records keyed by field name; values are strings, lists of strings or null
+    private interface RecordSource {
+        // Next record, or null at the end of input; throws IllegalArgumentException for a malformed row
+        Map<String, Object> next() throws IOException;
+
+        // Line on which the latest record started
+        long line();
+    }
+
+    // Buffered character input that tracks line numbers
+    private static class CharInput {
+        private final Reader reader;
+        private final char[] buffer = new char[8192];
+        private int position = 0;
+        private int length = 0;
+        long line = 1;
+
+        CharInput(Reader reader) {
+            this.reader = reader;
+        }
+
+        // Next character, or -1 at the end of input
+        int read() throws IOException {
+            if (position == length) {
+                length = reader.read(buffer);
+                position = 0;
+                if (length <= 0) {
+                    length = 0;
+                    return -1;
+                }
+            }
+            char c = buffer[position++];
+            if (c == '\n') {
+                line++;
+            }
+            return c;
+        }
+    }
+
+    // One JSON object per line: {"title": "...", "keywords": ["...", ...], ...}
+    private static class JsonLinesSource implements RecordSource {
+        private final CharInput input;
+        private final StringBuilder text = new StringBuilder();
+        private long recordLine = 0;
+
+        JsonLinesSource(Reader reader) {
+            input = new CharInput(reader);
+        }
+
+        @Override
+        public Map<String, Object> next() throws IOException {
+            while (true) {
+                recordLine = input.line;
+                text.setLength(0);
+                int c;
+                while ((c = input.read()) != -1 && c != '\n') {
+                    text.append((char) c);
+                }
+                if (text.toString().isBlank()) {
+                    if (c == -1) {
+                        return null;
+                    }
+                    continue; // Skip blank lines
+                }
+                return new JsonParser(text).parseRecord();
+            }
+        }
+
+        @Override
+        public long line() {
+            return recordLine;
+        }
+    }
+
+    // Minimal parser for flat JSON objects whose values are strings, numbers, booleans, null or arrays of strings
+    private static class JsonParser {
+        private final CharSequence text;
+        private int position = 0;
+
+        JsonParser(CharSequence text) {
+            this.text = text;
+        }
+
+        Map<String, Object> parseRecord() {
+            Map<String, Object> record = new HashMap<>();
+            skipSpace();
+            expect('{');
+            skipSpace();
+            if (peek() == '}') {
+                position++;
+            } else {
+                while (true) {
+                    skipSpace();
+                    String field = parseString();
+                    skipSpace();
+                    expect(':');
+                    skipSpace();
+                    record.put(field, parseValue());
+                    skipSpace();
+                    if (peek() == ',') {
+                        position++;
+                    } else {
+                        expect('}');
+                        break;
+                    }
+                }
+            }
+            skipSpace();
+            if (position != text.length()) {
+                throw new IllegalArgumentException("unexpected text after JSON object");
+            }
+            return record;
+        }
+
+        private Object parseValue() {
+            char c = peek();
+            if (c == '"') {
+                return parseString();
+            }
+            if (c == '[') {
+                position++;
+                List<Object> items = new ArrayList<>();
+                skipSpace();
+                if (peek() == ']') {
+                    position++;
+                    return items;
+                }
+                while (true) {
+                    skipSpace();
+                    items.add(parseValue());
+                    skipSpace();
+                    if (peek() == ',') {
+                        position++;
+                    } else {
+                        expect(']');
+                        return items;
+                    }
+                }
+            }
+            if (c == '{') {
+                throw new IllegalArgumentException("nested objects are not supported");
+            }
+            // Numbers, true, false and null are kept as their literal text
+            int start = position;
+            while (position < text.length() && ",}] \t\r".indexOf(text.charAt(position)) < 0) {
+                position++;
+            }
+            String literal = text.subSequence(start, position).toString();
+            if (literal.equals("null")) {
+                return null;
+            }
+            if (literal.isEmpty() || !(literal.equals("true") || literal.equals("false") || literal.matches("-?\\d+(\\.\\d+)?([eE][+-]?\\d+)?"))) {
+                throw new IllegalArgumentException("invalid JSON value at column " + (start + 1));
+            }
+            return literal;
+        }
+
+        private String parseString() {
+            expect('"');
+            StringBuilder value = new StringBuilder();
+            while (true) {
+                if (position >= text.length()) {
+                    throw new IllegalArgumentException("unterminated JSON string");
+                }
+                char c = text.charAt(position++);
+                if (c == '"') {
+                    return value.toString();
+                }
+                if (c != '\\') {
+                    value.append(c);
+                    continue;
+                }
+                if (position >= text.length()) {
+                    throw new IllegalArgumentException("unterminated JSON string");
+                }
+                char escape = text.charAt(position++);
+                switch (escape) {
+                    case '"': case '\\': case '/': value.append(escape); break;
+                    case 'b': value.append('\b'); break;
+                    case 'f': value.append('\f'); break;
+                    case 'n': value.append('\n'); break;
+                    case 'r': value.append('\r'); break;
+                    case 't': value.append('\t'); break;
+                    case 'u':
+                        if (position + 4 > text.length()) {
+                            throw new IllegalArgumentException("invalid JSON escape");
+                        }
+                        try {
+                            value.append((char) Integer.parseInt(text.subSequence(position, position + 4).toString(), 16));
+                        } catch (NumberFormatException e) {
+                            throw new IllegalArgumentException("invalid JSON escape");
+                        }
+                        position += 4;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("invalid JSON escape \\" + escape);
+                }
+            }
+        }
+
+        private char peek() {
+            if (position >= text.length()) {
+                throw new IllegalArgumentException("unexpected end of JSON");
+            }
+            return text.charAt(position);
+        }
+
+        private void expect(char c) {
+            if (peek() != c) {
+                throw new IllegalArgumentException("expected '" + c + "' at column " + (position + 1));
+            }
+            position++;
+        }
+
+        private void skipSpace() {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+        }
+    }
+
+    // RFC 4180 CSV with a header row naming the fields; quoted cells may contain commas, quotes and newlines.
+    // List fields hold semicolon-separated items.
+    private static class CsvSource implements RecordSource {
+        private final CharInput input;
+        private List<String> header; // Field names, read on the first call
+        private long recordLine = 0;
+
+        CsvSource(Reader reader) {
+            input = new CharInput(reader);
+        }
+
+        @Override
+        public Map<String, Object> next() throws IOException {
+            if (header == null) {
+                List<String> names = readRow();
+                if (names == null) {
+                    return null;
+                }
+                header = new ArrayList<>();
+                for (String name : names) {
+                    header.add(name.trim().toLowerCase(Locale.ROOT));
+                }
+                if (!header.contains("title")) {
+                    throw new IOException("CSV header has no title column");
+                }
+            }
+            List<String> cells;
+            do {
+                cells = readRow();
+                if (cells == null) {
+                    return null;
+                }
+            } while (cells.size() == 1 && cells.get(0).isEmpty()); // Skip blank lines
+            if (cells.size() != header.size()) {
+                throw new IllegalArgumentException("expected " + header.size() + " cells but found " + cells.size());
+            }
+            Map<String, Object> record = new HashMap<>();
+            for (int i = 0; i < cells.size(); i++) {
+                record.put(header.get(i), cells.get(i));
+            }
+            return record;
+        }
+
+        @Override
+        public long line() {
+            return recordLine;
+        }
+
+        // Read the cells of the next row, or null at the end of input
+        private List<String> readRow() throws IOException {
+            recordLine = input.line;
+            List<String> cells = new ArrayList<>();
+            StringBuilder cell = new StringBuilder();
+            boolean quoted = false;
+            int c = input.read();
+            if (c == -1) {
+                return null;
+            }
+            while (true) {
+                if (quoted) {
+                    if (c == -1) {
+                        throw new IllegalArgumentException("unterminated quoted cell");
+                    }
+                    if (c == '"') {
+                        c = input.read();
+                        if (c == '"') {
+                            cell.append('"'); // Escaped quote
+                        } else {
+                            quoted = false;
+                            continue; // Re-examine the character after the closing quote
+                        }
+                    } else {
+                        cell.append((char) c);
+                    }
+                } else if (c == -1 || c == '\n') {
+                    cells.add(cell.toString());
+                    return cells;
+                } else if (c == ',') {
+                    cells.add(cell.toString());
+                    cell.setLength(0);
+                } else if (c == '"' && cell.length() == 0) {
+                    quoted = true;
+                } else if (c != '\r') {
+                    cell.append((char) c);
+                }
+                c = input.read();
+            }
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package application;
+
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Dashboard list of article IDs that loads titles only for visible rows and applies repository changes as diffs
+public class ArticleListModel implements ArticleListener {
+
+    // Kinds of queued repository changes
+    private static final int CHANGED = 0;
+    private static final int REMOVED = 1;
+    private static final int CLEARED = 2;
+
+    // A repository change waiting to be applied on the JavaFX thread
+    private static class Change {
+        final int kind;
+        final long id;
+
+        Change(int kind, long id) {
+            this.kind = kind;
+            this.id = id;
+        }
+    }
+
+    private final ArticleRepository repository = ArticleRepository.getInstance();
+    private final ObservableList<Long> ids = FXCollections.observableArrayList(); // Rows, as article IDs
+    private final Set<Long> shown = new HashSet<>(); // Same IDs as the rows, for O(1) membership checks
+    private final ListView<Long> listView = new ListView<>(ids);
+    private final Queue<Change> pending = new ConcurrentLinkedQueue<>(); // Changes from any thread
+    private final AtomicBoolean drainScheduled = new AtomicBoolean(false);
+
+    private User user; // User whose visible articles are listed
+    private volatile boolean listing = false; // Nothing is listed until the first showAll or showSearch
+    private boolean attached = false; // Whether the model listens to the repository, touched on the JavaFX thread only
+    private String query; // Search query being listed, or null for every visible article
+
+    public ArticleListModel() {
+        // Cells look the title up only when a row scrolls into view
+        listView.setCellFactory(view -> new ListCell<>() {
+            @Override
+            protected void updateItem(Long id, boolean empty) {
+                super.updateItem(id, empty);
+                if (empty || id == null) {
+                    setText(null);
+                } else {
+                    User.HelpArticle article = repository.get(id);
+                    setText(article == null ? "" : article.getTitle());
+                }
+            }
+        });
+    }
+
+    public ListView<Long> getListView() {
+        return listView;
+    }
+
+    // ID of the selected article, or null if nothing is selected
+    public Long getSelectedId() {
+        return listView.getSelectionModel().getSelectedItem();
+    }
+
+    // Rebind the list to another user; it stays empty until the next showAll or showSearch
+    public void setUser(User user) {
+        this.user = user;
+        listing = false;
+        pending.clear();
+        query = null;
+        ids.clear();
+        shown.clear();
+    }
+
+    // Stop listing when the user logs out: unregister from the repository and drop the rows and queued changes
+    public void detach() {
+        if (attached) {
+            repository.removeListener(this);
+            attached = false;
+        }
+        setUser(null);
+    }
+
+    // List every article visible to the user
+    public void showAll() {
+        pending.clear(); // The fresh result reflects every change queued so far
+        show(null, user.getVisibleArticleIds());
+    }
+
+    // List the articles matching a search query
+    public void showSearch(String query) {
+        pending.clear(); // The fresh result reflects every change queued so far
+        show(query, user.searchHelpArticleIds(query));
+    }
+
+    @Override
+    public void articleAdded(User.HelpArticle article) {
+        enqueue(new Change(CHANGED, article.getId()));
+    }
+
+    @Override
+    public void articleUpdated(User.HelpArticle article) {
+        enqueue(new Change(CHANGED, article.getId()));
+    }
+
+    @Override
+    public void articleRemoved(long id) {
+        enqueue(new Change(REMOVED, id));
+    }
+
+    @Override
+    public void articlesCleared() {
+        enqueue(new Change(CLEARED, 0));
+    }
+
+    // Replace the rows with a fresh result
+    private void show(String newQuery, List<Long> newIds) {
+        if (!attached) {
+            repository.addListener(this); // Listen only while something is listed
+            attached = true;
+        }
+        listing = true;
+        query = newQuery;
+        ids.setAll(newIds);
+        shown.clear();
+        shown.addAll(newIds);
+    }
+
+    // Queue a change and make sure one drain is scheduled for however many changes arrive
+    private void enqueue(Change change) {
+        if (!listing) {
+            return; // Nothing listed yet, the next showAll or showSearch starts from fresh state
+        }
+        pending.add(change);
+        if (drainScheduled.compareAndSet(false, true)) {
+            Platform.runLater(this::drain);
+        }
+    }
+
+    // Apply the queued changes to the rows as one batch of removals, one of additions and at most one refresh
+    private void drain() {
+        drainScheduled.set(false);
+        if (!listing) {
+            pending.clear();
+            return;
+        }
+        Set<Long> toRemove = new HashSet<>();
+        Set<Long> toAdd = new LinkedHashSet<>();
+        boolean refresh = false;
+        Change change;
+        while ((change = pending.poll()) != null) {
+            long id = change.id;
+            if (change.kind == CLEARED) {
+                ids.clear();
+                shown.clear();
+                toRemove.clear();
+                toAdd.clear();
+            } else if (change.kind == REMOVED) {
+                toAdd.remove(id);
+                if (shown.contains(id)) {
+                    toRemove.add(id);
+                }
+            } else if (belongs(id)) {
+                if (shown.contains(id)) {
+                    toRemove.remove(id);
+                    refresh = true; // The title may have changed
+                } else {
+                    toAdd.add(id);
+                }
+            } else {
+                toAdd.remove(id);
+                if (shown.contains(id)) {
+                    toRemove.add(id);
+                }
+            }
+        }
+        if (!toRemove.isEmpty()) {
+            ids.removeIf(toRemove::contains);
+            shown.removeAll(toRemove);
+        }
+        if (!toAdd.isEmpty()) {
+            ids.addAll(toAdd);
+            shown.addAll(toAdd);
+        }
+        if (refresh) {
+            listView.refresh();
+        }
+    }
+
+    // Check whether an article should be listed under the current query
+    private boolean belongs(long id) {
+        User.HelpArticle article = repository.get(id);
+        return article != null && user.canSee(id) && (query == null || SearchIndex.matches(article, query));
+    }
+}
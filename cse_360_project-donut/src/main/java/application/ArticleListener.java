@@ -0,0 +1,20 @@
+package application;
+
+// Notified by ArticleRepository after each change; called on the changing thread while the repository is locked
+public interface ArticleListener {
+
+    // An article with a new ID was stored
+    void articleAdded(User.HelpArticle article);
+
+    // A stored article was updated or replaced
+    void articleUpdated(User.HelpArticle article);
+
+    // A stored article was removed
+    void articleRemoved(long id);
+
+    // Every article was removed
+    void articlesCleared();
+
+    // A backup of the given generation was taken; only listeners that keep the backup state need this
+    default void articlesBackedUp(long generation) {}
+}
@@ -0,0 +1,436 @@
+package application;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.LongPredicate;
+
+// Single store of help articles keyed by ID, shared by every user
+public class ArticleRepository {
+
+    private final Map<Long, User.HelpArticle> articles = new LinkedHashMap<>(); // Articles keyed by ID, in insertion order
+    private final Set<Long> sharedIds = new HashSet<>(); // IDs of articles visible to every user, e.g. restored ones
+    private final Map<Long, String> owners = new HashMap<>(); // Article ID -> username of the user who added it
+    private final SearchIndex searchIndex = new SearchIndex(); // Ranked token index over article text
+    private final GroupIndex groupIndex = new GroupIndex(); // Group index over article groups
+    private final FuzzyIndex fuzzyIndex = new FuzzyIndex(); // Trigram index for correcting misspelled search tokens
+    private final SuggestionIndex suggestionIndex = new SuggestionIndex(); // Prefix trie over article titles and keywords
+    private final QueryCache queryCache = new QueryCache(Integer.getInteger("donut.cache.capacity", QueryCache.DEFAULT_CAPACITY));
+    private final ChangeJournal changeJournal = new ChangeJournal(); // Changes since the last backup
+    private long backupGeneration = 0; // Generation of the latest backup, or 0 if none was taken
+    private ArticleBodyStore bodyStore; // Where article bodies are kept off the heap, or null to keep them in memory
+    private volatile long version = 0; // Number of changes made, written under the lock
+    private volatile Snapshot<User.HelpArticle> snapshot = new Snapshot<>(0, Collections.emptyList()); // Latest snapshot taken
+    private final List<ArticleListener> listeners = new CopyOnWriteArrayList<>(); // Notified after each change
+
+    // Lazily initialized holder, so the singleton is safely published without locking
+    private static class Holder {
+        private static final ArticleRepository INSTANCE = new ArticleRepository();
+    }
+
+    // Method to get the singleton instance
+    public static ArticleRepository getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    private ArticleRepository() {} // Private constructor to prevent instantiation
+
+    // Add or replace an article; shared articles are visible to every user
+    public synchronized void add(User.HelpArticle article, boolean shared) {
+        ArticleIdAllocator.getInstance().observe(article.getId()); // Restored or imported IDs must not be handed out again
+        User.HelpArticle replaced = articles.put(article.getId(), article);
+        if (replaced != null) {
+            invalidateCached(replaced);
+        }
+        invalidateCached(article);
+        version++;
+        storeBody(article);
+        if (shared) {
+            sharedIds.add(article.getId());
+        }
+        searchIndex.add(article);
+        groupIndex.add(article);
+        fuzzyIndex.add(article);
+        suggestionIndex.add(article);
+        changeJournal.recordChange(article.getId());
+        for (ArticleListener listener : listeners) {
+            if (replaced == null) {
+                listener.articleAdded(article);
+            } else {
+                listener.articleUpdated(article);
+            }
+        }
+    }
+
+    // Add or replace an article owned by a user, remembering the owner so the write-ahead log can record it
+    public synchronized void addOwned(User.HelpArticle article, String owner) {
+        owners.put(article.getId(), owner);
+        add(article, false);
+    }
+
+    // Put back an article read from storage with its owner and shared flag in one step. A body unchanged from the
+    // stored version keeps its place in the body store instead of being appended again.
+    public synchronized void restore(User.HelpArticle article, String owner, boolean shared) {
+        User.HelpArticle existing = articles.get(article.getId());
+        ArticleBodyStore.Body existingBody = existing == null ? null : existing.getStoredBody();
+        if (existingBody != null && existingBody.getStore() == bodyStore && article.getStoredBody() == null
+                && existingBody.read().equals(article.getBody())) {
+            article.setStoredBody(existingBody);
+        }
+        if (owner != null) {
+            owners.put(article.getId(), owner);
+        } else {
+            owners.remove(article.getId());
+        }
+        if (!shared) {
+            sharedIds.remove(article.getId());
+        }
+        add(article, shared);
+    }
+
+    // Username of the user who added an article, or null for shared articles
+    public synchronized String getOwner(long id) {
+        return owners.get(id);
+    }
+
+    // Add an article unless its ID is already stored; returns the stored article, or null if it was added
+    public synchronized User.HelpArticle addIfAbsent(User.HelpArticle article, boolean shared) {
+        User.HelpArticle existing = articles.get(article.getId());
+        if (existing == null) {
+            add(article, shared);
+        }
+        return existing;
+    }
+
+    // Add a batch of articles, indexing them together; returns the stored articles whose IDs the batch reused
+    public synchronized List<User.HelpArticle> addAllIfAbsent(List<User.HelpArticle> batch, boolean shared) {
+        List<User.HelpArticle> existing = new ArrayList<>();
+        List<User.HelpArticle> added = new ArrayList<>(batch.size());
+        for (User.HelpArticle article : batch) {
+            User.HelpArticle stored = articles.putIfAbsent(article.getId(), article);
+            if (stored != null) {
+                existing.add(stored);
+                continue;
+            }
+            ArticleIdAllocator.getInstance().observe(article.getId());
+            if (shared) {
+                sharedIds.add(article.getId());
+            }
+            storeBody(article);
+            changeJournal.recordChange(article.getId());
+            added.add(article);
+        }
+        if (!added.isEmpty()) {
+            version++;
+        }
+        if (queryCache.size() > 0) {
+            Set<String> tags = new HashSet<>();
+            for (User.HelpArticle article : added) {
+                tags.addAll(cacheTagsOf(article));
+            }
+            queryCache.invalidate(tags);
+        }
+        searchIndex.addAll(added); // One pass over each index per batch instead of one per article
+        groupIndex.addAll(added);
+        for (User.HelpArticle article : added) {
+            fuzzyIndex.add(article);
+            suggestionIndex.add(article);
+        }
+        for (ArticleListener listener : listeners) {
+            for (User.HelpArticle article : added) {
+                listener.articleAdded(article);
+            }
+        }
+        return existing;
+    }
+
+    // Update an existing article in place and re-index it
+    public synchronized boolean update(long id, String title, String description, List<String> keywords, String body, List<String> links, List<String> groups, String level) {
+        User.HelpArticle article = articles.get(id);
+        if (article == null) {
+            return false;
+        }
+        invalidateCached(article); // Entries depending on what the article was
+        article.setTitle(title);
+        article.setDescription(description);
+        article.setKeywords(keywords);
+        article.setBody(body);
+        article.setLinks(links);
+        article.setGroups(groups);
+        article.setLevel(level);
+        storeBody(article);
+        invalidateCached(article); // Entries depending on what it is now
+        version++;
+        searchIndex.add(article); // Re-index under the new title, keywords and groups
+        groupIndex.add(article);
+        fuzzyIndex.add(article);
+        suggestionIndex.add(article);
+        changeJournal.recordChange(id);
+        for (ArticleListener listener : listeners) {
+            listener.articleUpdated(article);
+        }
+        return true;
+    }
+
+    // Remove an article by its ID, returning it or null if it was not stored
+    public synchronized User.HelpArticle remove(long id) {
+        User.HelpArticle removed = articles.remove(id);
+        if (removed != null) {
+            invalidateCached(removed);
+            version++;
+            sharedIds.remove(id);
+            owners.remove(id);
+            searchIndex.remove(id);
+            groupIndex.remove(id);
+            fuzzyIndex.remove(id);
+            suggestionIndex.remove(id);
+            changeJournal.recordChange(id);
+            for (ArticleListener listener : listeners) {
+                listener.articleRemoved(id);
+            }
+        }
+        return removed;
+    }
+
+    // Get an article by its ID, or null if it is not stored
+    public synchronized User.HelpArticle get(long id) {
+        return articles.get(id);
+    }
+
+    public synchronized boolean contains(long id) {
+        return articles.containsKey(id);
+    }
+
+    public synchronized boolean isShared(long id) {
+        return sharedIds.contains(id);
+    }
+
+    public synchronized int size() {
+        return articles.size();
+    }
+
+    // Get the IDs of every stored article, in insertion order
+    public synchronized List<Long> getIds() {
+        return new ArrayList<>(articles.keySet());
+    }
+
+    // Get every stored article, in insertion order, as a read-only list that later changes do not affect
+    public List<User.HelpArticle> getAll() {
+        return snapshot().getItems();
+    }
+
+    // Take a consistent, read-only view of the stored articles; repeated calls share one snapshot until an
+    // article is added, updated or removed
+    public Snapshot<User.HelpArticle> snapshot() {
+        Snapshot<User.HelpArticle> latest = snapshot;
+        if (latest.getVersion() == version) {
+            return latest;
+        }
+        synchronized (this) {
+            if (snapshot.getVersion() != version) {
+                snapshot = new Snapshot<>(version, articles.values());
+            }
+            return snapshot;
+        }
+    }
+
+    // Number of changes made to the stored articles so far
+    public long getVersion() {
+        return version;
+    }
+
+    // Find the IDs of articles whose text contains every token of the query, most relevant first;
+    // misspelled tokens are corrected if nothing matches them. The matches are cached until an article with
+    // one of the tokens changes and ranked on each search, as the scores depend on every article.
+    public synchronized List<Long> search(String query) {
+        Set<String> tokens = new TreeSet<>(SearchIndex.tokenize(query)); // Sorted, so word order shares an entry
+        String key = "search:" + String.join(" ", tokens);
+        SearchIndex.Matches cached = queryCache.get(key);
+        if (cached != null) {
+            return searchIndex.rank(cached, Integer.MAX_VALUE, id -> true);
+        }
+        List<String> tags = new ArrayList<>();
+        for (String token : tokens) {
+            if (!searchIndex.hasToken(token)) {
+                return search(query, Integer.MAX_VALUE, id -> true); // Corrections depend on every title, so are not cached
+            }
+            tags.add(QueryCache.tokenTag(token));
+        }
+        SearchIndex.Matches matches = searchIndex.match(query);
+        queryCache.put(key, matches, matches.weight(), tags);
+        return searchIndex.rank(matches, Integer.MAX_VALUE, id -> true);
+    }
+
+    // Find the IDs of the limit most relevant articles matching the query that pass the filter
+    public synchronized List<Long> search(String query, int limit, LongPredicate filter) {
+        List<Long> results = searchIndex.search(query, limit, filter);
+        if (results.isEmpty()) {
+            String corrected = correct(query);
+            if (corrected != null) {
+                results = searchIndex.search(corrected, limit, filter);
+            }
+        }
+        return results;
+    }
+
+    // Replace the query tokens no article contains with the closest title or keyword tokens,
+    // or return null if there is nothing to correct or no close enough token
+    private String correct(String query) {
+        StringBuilder corrected = new StringBuilder();
+        boolean changed = false;
+        for (String token : SearchIndex.tokenize(query)) {
+            if (!searchIndex.hasToken(token)) {
+                token = fuzzyIndex.correct(token);
+                if (token == null) {
+                    return null;
+                }
+                changed = true;
+            }
+            corrected.append(token).append(' ');
+        }
+        return changed ? corrected.toString() : null;
+    }
+
+    // Titles and keywords starting with a prefix, of articles passing the filter
+    public synchronized List<String> suggest(String prefix, int limit, LongPredicate filter) {
+        return suggestionIndex.suggest(prefix, limit, filter);
+    }
+
+    // Find the sorted IDs of the articles in a group
+    public synchronized List<Long> findByGroup(String group) {
+        String key = "group:" + GroupIndex.normalize(group);
+        List<Long> cached = queryCache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        return queryCache.put(key, groupIndex.get(group), Collections.singletonList(QueryCache.groupTag(group)));
+    }
+
+    // Find the sorted IDs of the articles in all (matchAll) or any of the groups
+    public synchronized List<Long> findByGroups(Collection<String> groups, boolean matchAll) {
+        Set<String> names = new TreeSet<>();
+        List<String> tags = new ArrayList<>();
+        for (String group : groups) {
+            if (names.add(GroupIndex.normalize(group))) {
+                tags.add(QueryCache.groupTag(group));
+            }
+        }
+        String key = (matchAll ? "groups:all:" : "groups:any:") + String.join("\u0000", names);
+        List<Long> cached = queryCache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        return queryCache.put(key, matchAll ? groupIndex.getAll(groups) : groupIndex.getAny(groups), tags);
+    }
+
+    // Cache of search and group listing results, for its statistics
+    public QueryCache getQueryCache() {
+        return queryCache;
+    }
+
+    // Helper to drop the cached results an article's tokens or groups could change
+    private void invalidateCached(User.HelpArticle article) {
+        if (queryCache.size() > 0) {
+            queryCache.invalidate(cacheTagsOf(article));
+        }
+    }
+
+    // Helper to list the cache tags of an article's tokens and groups
+    private static List<String> cacheTagsOf(User.HelpArticle article) {
+        List<String> tags = new ArrayList<>();
+        for (String token : SearchIndex.tokensOf(article)) {
+            tags.add(QueryCache.tokenTag(token));
+        }
+        if (article.getGroups() != null) {
+            for (String group : article.getGroups()) {
+                tags.add(QueryCache.groupTag(group));
+            }
+        }
+        return tags;
+    }
+
+    // Remove every article
+    public synchronized void clear() {
+        articles.clear();
+        sharedIds.clear();
+        owners.clear();
+        searchIndex.clear();
+        groupIndex.clear();
+        fuzzyIndex.clear();
+        suggestionIndex.clear();
+        queryCache.clear();
+        version++;
+        changeJournal.recordClear();
+        for (ArticleListener listener : listeners) {
+            listener.articlesCleared();
+        }
+    }
+
+    // Keep article bodies in a memory-mapped store from now on, moving the bodies of stored articles there too;
+    // null keeps new bodies on the heap
+    public synchronized void setBodyStore(ArticleBodyStore store) {
+        bodyStore = store;
+        for (User.HelpArticle article : articles.values()) {
+            storeBody(article);
+        }
+    }
+
+    public synchronized ArticleBodyStore getBodyStore() {
+        return bodyStore;
+    }
+
+    // Helper to move an article's body into the body store, keeping it on the heap if that fails
+    private void storeBody(User.HelpArticle article) {
+        if (bodyStore != null) {
+            try {
+                article.storeBody(bodyStore);
+            } catch (IOException e) {
+                System.out.println("Keeping article body in memory: " + e.getMessage());
+            }
+        }
+    }
+
+    public void addListener(ArticleListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(ArticleListener listener) {
+        listeners.remove(listener);
+    }
+
+    // Methods for incremental backups; callers needing several of these consistently lock the repository
+
+    // Sequence of the latest change; a backup of the current state covers everything up to it
+    public synchronized long getChangeMark() {
+        return changeJournal.mark();
+    }
+
+    // IDs of the articles added, updated or removed since the last backup
+    public synchronized List<Long> getChangedIds() {
+        return changeJournal.getChangedIds();
+    }
+
+    // Whether every article was removed since the last backup
+    public synchronized boolean isClearedSinceBackup() {
+        return changeJournal.isCleared();
+    }
+
+    public synchronized long getBackupGeneration() {
+        return backupGeneration;
+    }
+
+    // Record a successful backup covering the changes up to the mark
+    public synchronized void markBackedUp(long generation, long mark) {
+        backupGeneration = generation;
+        changeJournal.commit(mark);
+        for (ArticleListener listener : listeners) {
+            listener.articlesBackedUp(generation);
+        }
+    }
+
+    // Put back the backup state read from storage: the latest generation and the changes made since
+    public synchronized void restoreBackupState(long generation, boolean cleared, List<Long> changedIds) {
+        backupGeneration = generation;
+        changeJournal.reset(cleared, changedIds);
+    }
+}
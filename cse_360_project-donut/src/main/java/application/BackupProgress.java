@@ -0,0 +1,14 @@
+package application;
+
+// Receives progress from a running backup or restore; returning false cancels it
+@FunctionalInterface
+public interface BackupProgress {
+
+    int REPORT_INTERVAL = 1024; // Articles processed between progress reports
+
+    // Progress listener that never cancels
+    BackupProgress NONE = (articlesProcessed, bytesProcessed) -> true;
+
+    // Called every REPORT_INTERVAL articles and once at the end; return false to cancel
+    boolean update(long articlesProcessed, long bytesProcessed);
+}
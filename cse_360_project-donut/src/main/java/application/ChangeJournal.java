@@ -0,0 +1,61 @@
+package application;
+
+import java.util.*;
+
+// Records which help articles changed since the last backup, so incremental backups write only those
+public class ChangeJournal {
+
+    private Map<Long, Long> changes = new LinkedHashMap<>(); // Article ID -> sequence of its latest change, oldest first
+    private long sequence = 0; // Sequence of the latest change
+    private long clearSequence = 0; // Sequence of the latest clear not yet backed up, or 0
+
+    // Record that an article was added, updated or removed
+    public void recordChange(long id) {
+        changes.remove(id); // Move the article to the end so the map stays ordered by sequence
+        changes.put(id, ++sequence);
+    }
+
+    // Record that every article was removed
+    public void recordClear() {
+        changes.clear();
+        clearSequence = ++sequence;
+    }
+
+    // Sequence of the latest change; a backup taken now covers everything up to it
+    public long mark() {
+        return sequence;
+    }
+
+    // IDs of the articles changed since the last backup, oldest change first
+    public List<Long> getChangedIds() {
+        return new ArrayList<>(changes.keySet());
+    }
+
+    // Whether every article was removed since the last backup
+    public boolean isCleared() {
+        return clearSequence != 0;
+    }
+
+    // Replace the pending changes with ones read back from storage
+    public void reset(boolean cleared, List<Long> changedIds) {
+        changes.clear();
+        clearSequence = 0;
+        if (cleared) {
+            recordClear();
+        }
+        for (Long id : changedIds) {
+            recordChange(id);
+        }
+    }
+
+    // Forget the changes a successful backup covered; later changes stay pending
+    public void commit(long mark) {
+        Iterator<Long> sequences = changes.values().iterator();
+        while (sequences.hasNext() && sequences.next() <= mark) {
+            sequences.remove();
+        }
+        if (clearSequence <= mark) {
+            clearSequence = 0;
+        }
+    }
+}
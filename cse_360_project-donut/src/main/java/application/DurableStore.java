@@ -0,0 +1,442 @@
+package application;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.*;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Keeps users and help articles in a data directory: every change is appended to a write-ahead log,
+// and the log is periodically compacted into a snapshot. Opening the directory loads the latest
+// snapshot and replays the log written after it.
+public class DurableStore implements ArticleListener, Closeable {
+
+    public static final int DEFAULT_SNAPSHOT_INTERVAL = 10_000; // Log records between automatic snapshots
+
+    static final byte END = 0; // Last record of a complete snapshot
+    static final byte USER_PUT = 1; // Full state of a registered or changed user
+    static final byte USER_DELETE = 2; // Username of a deleted user
+    static final byte ARTICLE_PUT = 3; // Owner, shared flag and fields of an added or updated article
+    static final byte ARTICLE_REMOVE = 4; // ID of a removed article
+    static final byte ARTICLE_CLEAR = 5; // Every article was removed
+    static final byte ARTICLE_STORED = 6; // Like ARTICLE_PUT, with the body's location in the body file instead of its text
+    static final byte BACKUP_STATE = 7; // Generation of the latest backup and the article changes made since
+
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".snap";
+    private static final String BODY_FILE = "bodies.dat";
+
+    private final Path directory;
+    private final Login login;
+    private final ArticleRepository articleRepository;
+    private final WriteAheadLog log;
+    private ArticleBodyStore bodyStore; // Article bodies, kept off the heap
+    private final int snapshotInterval;
+    private final AtomicLong recordsSinceSnapshot = new AtomicLong(); // Triggers the next automatic snapshot
+    private final AtomicBoolean snapshotScheduled = new AtomicBoolean();
+    private final ExecutorService snapshotExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "snapshot-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public DurableStore(Path directory, Login login, ArticleRepository articleRepository) {
+        this.directory = directory;
+        this.login = login;
+        this.articleRepository = articleRepository;
+        this.log = new WriteAheadLog(directory);
+        this.snapshotInterval = Integer.getInteger("donut.snapshot.interval", DEFAULT_SNAPSHOT_INTERVAL);
+    }
+
+    // Load the latest snapshot, replay the log after it and start logging changes.
+    // Call before anything else uses the users or articles.
+    public void open() throws IOException {
+        Files.createDirectories(directory);
+        bodyStore = new ArticleBodyStore(directory.resolve(BODY_FILE));
+        articleRepository.setBodyStore(bodyStore); // Bodies loaded below go straight to the body file
+        long snapshotSeq = latestSnapshot();
+        if (snapshotSeq > 0) {
+            loadSnapshot(snapshotPath(snapshotSeq));
+        }
+        long lastSeq = log.replay(Math.max(1, snapshotSeq), this::apply);
+        log.start(Math.max(lastSeq, snapshotSeq - 1) + 1);
+        articleRepository.addListener(this);
+    }
+
+    // Stop logging, writing out every change logged so far
+    @Override
+    public void close() throws IOException {
+        articleRepository.removeListener(this);
+        snapshotExecutor.shutdown();
+        try {
+            snapshotExecutor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.close();
+        if (bodyStore != null) {
+            articleRepository.setBodyStore(null);
+            bodyStore.close(); // Articles already loaded keep reading their bodies from the mapping
+        }
+    }
+
+    // Methods called by Login; each returns the record number to wait for, or 0 if logging failed
+
+    public long userChanged(User user) {
+        return append(USER_PUT, encodeUser(user));
+    }
+
+    public long userDeleted(String username) {
+        ByteBuffer payload = ByteBuffer.allocate(RecordCodec.sizeOf(username));
+        RecordCodec.putString(payload, username);
+        payload.flip();
+        return append(USER_DELETE, payload);
+    }
+
+    // Wait until a logged change is on disk
+    public boolean awaitDurable(long seq) {
+        return seq > 0 && log.awaitDurable(seq);
+    }
+
+    // Article changes, logged in the order the repository applies them
+
+    @Override
+    public void articleAdded(User.HelpArticle article) {
+        append(ARTICLE_PUT, encodeArticle(article));
+    }
+
+    @Override
+    public void articleUpdated(User.HelpArticle article) {
+        append(ARTICLE_PUT, encodeArticle(article));
+    }
+
+    @Override
+    public void articleRemoved(long id) {
+        ByteBuffer payload = ByteBuffer.allocate(8);
+        payload.putLong(id);
+        payload.flip();
+        append(ARTICLE_REMOVE, payload);
+    }
+
+    @Override
+    public void articlesCleared() {
+        append(ARTICLE_CLEAR, ByteBuffer.allocate(0));
+    }
+
+    // Logged so incremental backups can continue the chain after a restart
+    @Override
+    public void articlesBackedUp(long generation) {
+        append(BACKUP_STATE, encodeBackupState());
+    }
+
+    // Write a snapshot of every user and article and drop the log it replaces; returns true on success.
+    // The snapshot is taken while changes continue: everything changed after the log was rotated is also
+    // in the new segment, and replaying it over the snapshot gives the same final state.
+    public synchronized boolean snapshot() {
+        try {
+            long startSeq = log.rotate(); // Records from startSeq on are replayed over this snapshot
+            recordsSinceSnapshot.set(0);
+            long bodiesOnDisk = bodyStore.force(); // Bodies below this offset can be referenced instead of copied
+            Path temp = directory.resolve(SNAPSHOT_PREFIX + "tmp");
+            try (FileOutputStream file = new FileOutputStream(temp.toFile());
+                 BufferedOutputStream out = new BufferedOutputStream(file, 64 * 1024)) {
+                for (User user : login.listUsers()) {
+                    out.write(WriteAheadLog.encode(USER_PUT, encodeUser(user)));
+                }
+                for (User.HelpArticle article : articleRepository.getAll()) {
+                    ArticleBodyStore.Body body = article.getStoredBody();
+                    if (body != null && body.getStore() == bodyStore && body.getOffset() + body.getLength() <= bodiesOnDisk) {
+                        out.write(WriteAheadLog.encode(ARTICLE_STORED, encodeStoredArticle(article, body)));
+                    } else {
+                        out.write(WriteAheadLog.encode(ARTICLE_PUT, encodeArticle(article)));
+                    }
+                }
+                out.write(WriteAheadLog.encode(BACKUP_STATE, encodeBackupState())); // After the articles, which replay as changes
+                out.write(WriteAheadLog.encode(END, ByteBuffer.allocate(0)));
+                out.flush();
+                file.getChannel().force(true);
+            }
+            Files.move(temp, snapshotPath(startSeq), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            // Only now is the older history redundant
+            for (long seq : listSnapshots()) {
+                if (seq < startSeq) {
+                    Files.deleteIfExists(snapshotPath(seq));
+                }
+            }
+            log.deleteSegmentsBefore(startSeq);
+            return true;
+        } catch (IOException e) {
+            System.out.println("Error writing snapshot: " + e.getMessage());
+            return false;
+        }
+    }
+
+    // Helper to append a record, scheduling a snapshot once enough records have accumulated
+    private long append(byte type, ByteBuffer payload) {
+        try {
+            long seq = log.append(type, payload);
+            if (recordsSinceSnapshot.incrementAndGet() >= snapshotInterval && snapshotScheduled.compareAndSet(false, true)) {
+                try {
+                    snapshotExecutor.execute(() -> {
+                        snapshotScheduled.set(false);
+                        snapshot();
+                    });
+                } catch (RejectedExecutionException e) {
+                    // Closing; the log itself still holds the change
+                }
+            }
+            return seq;
+        } catch (IOException e) {
+            System.out.println("Error writing to the write-ahead log: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    // Apply a snapshot or log record to the in-memory users and articles
+    private void apply(byte type, ByteBuffer payload) throws IOException {
+        switch (type) {
+            case USER_PUT:
+                applyUser(decodeUser(payload));
+                break;
+            case USER_DELETE:
+                login.deleteUser(RecordCodec.getString(payload));
+                break;
+            case ARTICLE_PUT:
+            case ARTICLE_STORED:
+                String owner = RecordCodec.getString(payload);
+                boolean shared = payload.get() != 0;
+                ArticleBodyStore.Body body = null;
+                if (type == ARTICLE_STORED) {
+                    long offset = payload.getLong();
+                    body = bodyStore.get(offset, payload.getInt());
+                }
+                User.HelpArticle article = RecordCodec.getArticle(payload);
+                if (body != null) {
+                    article.setStoredBody(body); // Not decoded until someone reads it, nor appended to the body file again
+                }
+                if (owner != null) {
+                    User user = login.findUser(owner);
+                    if (user != null) {
+                        user.getArticleIds().add(article.getId());
+                    }
+                }
+                articleRepository.restore(article, owner, shared); // Owned and shared articles are added once
+                break;
+            case ARTICLE_REMOVE:
+                articleRepository.remove(payload.getLong());
+                break;
+            case ARTICLE_CLEAR:
+                articleRepository.clear();
+                break;
+            case BACKUP_STATE:
+                long generation = payload.getLong();
+                boolean cleared = payload.get() != 0;
+                int count = payload.getInt();
+                List<Long> changedIds = new ArrayList<>(Math.min(count, payload.remaining() / 8));
+                for (int i = 0; i < count; i++) {
+                    changedIds.add(payload.getLong());
+                }
+                articleRepository.restoreBackupState(generation, cleared, changedIds);
+                break;
+            default:
+                throw new IOException("Unknown record type " + type);
+        }
+    }
+
+    // Helper to register a user read back from storage, or update the registered user of that name
+    private void applyUser(User stored) {
+        User user = login.findUser(stored.getUsername());
+        if (user == null) {
+            login.addToRegistry(stored);
+            return;
+        }
+        user.setPasswordHash(stored.getPasswordHash());
+        user.setRole(stored.getRole());
+        user.setFirstName(stored.getFirstName());
+        user.setMiddleName(stored.getMiddleName());
+        user.setLastName(stored.getLastName());
+        user.setPreferredName(stored.getPreferredName());
+        user.setOneTimePassword(stored.isOneTimePassword());
+        user.setOtpExpiry(stored.getOtpExpiry()); // Reschedules the expiry
+        user.setAccountSetupComplete(stored.isAccountSetupComplete());
+        user.getTopics().clear();
+        user.getTopics().putAll(stored.getTopics());
+        login.updateEmail(user, stored.getEmail());
+    }
+
+    // Helper to load every record of a snapshot, which must end with its END record
+    private void loadSnapshot(Path snapshot) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshot), 64 * 1024))) {
+            ByteBuffer record;
+            while ((record = WriteAheadLog.readRecord(in)) != null) {
+                byte type = record.get();
+                if (type == END) {
+                    return;
+                }
+                apply(type, record);
+            }
+        }
+        throw new IOException("Snapshot " + snapshot + " is incomplete");
+    }
+
+    // Helper to encode a user: names, password hash, one-time password state, setup flag and topics
+    private static ByteBuffer encodeUser(User user) {
+        PasswordHasher.Hash hash = user.getPasswordHash();
+        byte[] salt = hash.getSalt();
+        byte[] hashBytes = hash.getHash();
+        LocalDateTime otpExpiry = user.getOtpExpiry();
+        String expiry = otpExpiry == null ? null : otpExpiry.toString();
+        Map<String, String> topics = new LinkedHashMap<>(user.getTopics());
+        int size = RecordCodec.sizeOf(user.getUsername()) + RecordCodec.sizeOf(user.getRole())
+                + RecordCodec.sizeOf(user.getEmail()) + RecordCodec.sizeOf(user.getFirstName())
+                + RecordCodec.sizeOf(user.getMiddleName()) + RecordCodec.sizeOf(user.getLastName())
+                + RecordCodec.sizeOf(user.getPreferredName())
+                + RecordCodec.sizeOf(salt) + 4 + RecordCodec.sizeOf(hashBytes)
+                + 1 + RecordCodec.sizeOf(expiry) + 1 + 4;
+        for (Map.Entry<String, String> topic : topics.entrySet()) {
+            size += RecordCodec.sizeOf(topic.getKey()) + RecordCodec.sizeOf(topic.getValue());
+        }
+        ByteBuffer payload = ByteBuffer.allocate(size);
+        RecordCodec.putString(payload, user.getUsername());
+        RecordCodec.putString(payload, user.getRole());
+        RecordCodec.putString(payload, user.getEmail());
+        RecordCodec.putString(payload, user.getFirstName());
+        RecordCodec.putString(payload, user.getMiddleName());
+        RecordCodec.putString(payload, user.getLastName());
+        RecordCodec.putString(payload, user.getPreferredName());
+        RecordCodec.putBytes(payload, salt);
+        payload.putInt(hash.getIterations());
+        RecordCodec.putBytes(payload, hashBytes);
+        payload.put((byte) (user.isOneTimePassword() ? 1 : 0));
+        RecordCodec.putString(payload, expiry);
+        payload.put((byte) (user.isAccountSetupComplete() ? 1 : 0));
+        payload.putInt(topics.size());
+        for (Map.Entry<String, String> topic : topics.entrySet()) {
+            RecordCodec.putString(payload, topic.getKey());
+            RecordCodec.putString(payload, topic.getValue());
+        }
+        payload.flip();
+        return payload;
+    }
+
+    // Helper to decode a user written by encodeUser
+    private static User decodeUser(ByteBuffer payload) {
+        String username = RecordCodec.getString(payload);
+        String role = RecordCodec.getString(payload);
+        String email = RecordCodec.getString(payload);
+        String firstName = RecordCodec.getString(payload);
+        String middleName = RecordCodec.getString(payload);
+        String lastName = RecordCodec.getString(payload);
+        String preferredName = RecordCodec.getString(payload);
+        byte[] salt = RecordCodec.getBytes(payload);
+        int iterations = payload.getInt();
+        byte[] hash = RecordCodec.getBytes(payload);
+        User user = new User(username, new PasswordHasher.Hash(salt, iterations, hash), role);
+        user.setEmail(email);
+        user.setFirstName(firstName);
+        user.setMiddleName(middleName);
+        user.setLastName(lastName);
+        user.setPreferredName(preferredName);
+        user.setOneTimePassword(payload.get() != 0);
+        String expiry = RecordCodec.getString(payload);
+        user.setOtpExpiry(expiry == null ? null : LocalDateTime.parse(expiry));
+        user.setAccountSetupComplete(payload.get() != 0);
+        int topics = payload.getInt();
+        for (int i = 0; i < topics; i++) {
+            user.setTopicProficiency(RecordCodec.getString(payload), RecordCodec.getString(payload));
+        }
+        return user;
+    }
+
+    // Helper to encode an article with its owner and shared flag
+    private ByteBuffer encodeArticle(User.HelpArticle article) {
+        String owner;
+        boolean shared;
+        synchronized (articleRepository) {
+            owner = articleRepository.getOwner(article.getId());
+            shared = articleRepository.isShared(article.getId());
+        }
+        byte[] encoded = RecordCodec.encodeArticle(article);
+        ByteBuffer payload = ByteBuffer.allocate(RecordCodec.sizeOf(owner) + 1 + encoded.length);
+        RecordCodec.putString(payload, owner);
+        payload.put((byte) (shared ? 1 : 0));
+        payload.put(encoded);
+        payload.flip();
+        return payload;
+    }
+
+    // Helper to encode the generation of the latest backup and the changes made since
+    private ByteBuffer encodeBackupState() {
+        long generation;
+        boolean cleared;
+        List<Long> changedIds;
+        synchronized (articleRepository) {
+            generation = articleRepository.getBackupGeneration();
+            cleared = articleRepository.isClearedSinceBackup();
+            changedIds = articleRepository.getChangedIds();
+        }
+        ByteBuffer payload = ByteBuffer.allocate(8 + 1 + 4 + 8 * changedIds.size());
+        payload.putLong(generation);
+        payload.put((byte) (cleared ? 1 : 0));
+        payload.putInt(changedIds.size());
+        for (Long id : changedIds) {
+            payload.putLong(id);
+        }
+        payload.flip();
+        return payload;
+    }
+
+    // Helper to encode an article whose body is already in the body file, recording only where the body is
+    private ByteBuffer encodeStoredArticle(User.HelpArticle article, ArticleBodyStore.Body body) {
+        String owner;
+        boolean shared;
+        synchronized (articleRepository) {
+            owner = articleRepository.getOwner(article.getId());
+            shared = articleRepository.isShared(article.getId());
+        }
+        User.HelpArticle header = new User.HelpArticle(article.getId(), article.getTitle(), article.getDescription(),
+                article.getKeywords(), null, article.getLinks(), article.getGroups(), article.getLevel());
+        byte[] encoded = RecordCodec.encodeArticle(header);
+        ByteBuffer payload = ByteBuffer.allocate(RecordCodec.sizeOf(owner) + 1 + 8 + 4 + encoded.length);
+        RecordCodec.putString(payload, owner);
+        payload.put((byte) (shared ? 1 : 0));
+        payload.putLong(body.getOffset());
+        payload.putInt(body.getLength());
+        payload.put(encoded);
+        payload.flip();
+        return payload;
+    }
+
+    // Helper to find the start of the newest complete snapshot, or 0 if there is none
+    private long latestSnapshot() throws IOException {
+        List<Long> snapshots = listSnapshots();
+        return snapshots.isEmpty() ? 0 : snapshots.get(snapshots.size() - 1);
+    }
+
+    // Helper to list the snapshots in the directory by the log record each one continues from
+    private List<Long> listSnapshots() throws IOException {
+        List<Long> snapshots = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SNAPSHOT_PREFIX + "*" + SNAPSHOT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    snapshots.add(Long.parseLong(name.substring(SNAPSHOT_PREFIX.length(), name.length() - SNAPSHOT_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    // Not a snapshot written by this class
+                }
+            }
+        }
+        snapshots.sort(null);
+        return snapshots;
+    }
+
+    private Path snapshotPath(long startSeq) {
+        return directory.resolve(String.format("%s%020d%s", SNAPSHOT_PREFIX, startSeq, SNAPSHOT_SUFFIX));
+    }
+}
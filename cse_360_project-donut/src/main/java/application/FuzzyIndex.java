@@ -0,0 +1,184 @@
+package application;
+
+import java.util.*;
+
+// Trigram index over the tokens of help article titles and keywords, used to correct misspelled search tokens.
+// Candidate tokens must share enough trigrams with the misspelling to be within the edit distance, so only
+// they are compared character by character.
+public class FuzzyIndex {
+
+    public static final int DEFAULT_MAX_DISTANCE = 2;
+    public static final long DEFAULT_BUDGET_MILLIS = 20;
+    private static final int GRAM = 3;
+    private static final char PAD = '\u0000'; // Marks the start and end of a token, so short tokens have trigrams
+    private static final int CHECK_INTERVAL = 256; // Candidates counted between clock reads; a power of two
+
+    // Most edits a correction may need; shorter tokens allow fewer (none up to 2 characters, one up to 5)
+    private static volatile int maxDistance = Integer.getInteger("donut.fuzzy.distance", DEFAULT_MAX_DISTANCE);
+    // Time one correction may take; the best correction found so far is used once it runs out
+    private static volatile long budgetNanos = Long.getLong("donut.fuzzy.budget.ms", DEFAULT_BUDGET_MILLIS) * 1_000_000L;
+
+    private Map<String, Set<String>> grams = new HashMap<>(); // Trigram -> tokens containing it
+    private Map<String, Integer> tokenCounts = new HashMap<>(); // Token -> number of articles using it
+    private Map<Long, String[]> articleTokens = new HashMap<>(); // Article ID -> tokens it was indexed under
+
+    public static int getMaxDistance() {
+        return maxDistance;
+    }
+
+    public static void setMaxDistance(int distance) {
+        if (distance < 0) {
+            throw new IllegalArgumentException("Edit distance must not be negative");
+        }
+        maxDistance = distance;
+    }
+
+    public static long getBudgetMillis() {
+        return budgetNanos / 1_000_000L;
+    }
+
+    public static void setBudgetMillis(long millis) {
+        if (millis <= 0) {
+            throw new IllegalArgumentException("Latency budget must be positive");
+        }
+        budgetNanos = millis * 1_000_000L;
+    }
+
+    // Index an article under the tokens of its title and keywords
+    public void add(User.HelpArticle article) {
+        remove(article.getId()); // Re-adding an article replaces its old tokens
+        Set<String> tokens = new HashSet<>(SearchIndex.tokenize(article.getTitle()));
+        if (article.getKeywords() != null) {
+            for (String keyword : article.getKeywords()) {
+                tokens.addAll(SearchIndex.tokenize(keyword));
+            }
+        }
+        for (String token : tokens) {
+            if (tokenCounts.merge(token, 1, Integer::sum) == 1) {
+                for (String gram : gramsOf(token)) {
+                    grams.computeIfAbsent(gram, g -> new HashSet<>()).add(token);
+                }
+            }
+        }
+        articleTokens.put(article.getId(), tokens.toArray(new String[0]));
+    }
+
+    // Remove an article, dropping the tokens no other article uses
+    public void remove(long id) {
+        String[] tokens = articleTokens.remove(id);
+        if (tokens == null) {
+            return;
+        }
+        for (String token : tokens) {
+            if (tokenCounts.merge(token, -1, Integer::sum) == 0) {
+                tokenCounts.remove(token);
+                for (String gram : gramsOf(token)) {
+                    Set<String> containing = grams.get(gram);
+                    containing.remove(token);
+                    if (containing.isEmpty()) {
+                        grams.remove(gram);
+                    }
+                }
+            }
+        }
+    }
+
+    // Closest indexed token to a misspelled one, or null if none is within the allowed edit distance.
+    // Ties go to the token used by more articles, then to the alphabetically first.
+    public String correct(String token) {
+        long deadline = System.nanoTime() + budgetNanos;
+        int allowed = Math.min(maxDistance, token.length() <= 2 ? 0 : token.length() <= 5 ? 1 : 2);
+        if (allowed == 0) {
+            return null;
+        }
+        Set<String> queryGrams = gramsOf(token);
+        int needed = queryGrams.size() - GRAM * allowed; // Each edit breaks at most GRAM trigrams
+        Map<String, Integer> shared = new HashMap<>();
+        int scanned = 0;
+        collect:
+        for (String gram : queryGrams) {
+            Set<String> containing = grams.get(gram);
+            if (containing != null) {
+                for (String candidate : containing) {
+                    if (Math.abs(candidate.length() - token.length()) <= allowed) {
+                        shared.merge(candidate, 1, Integer::sum);
+                    }
+                    if ((++scanned & (CHECK_INTERVAL - 1)) == 0 && System.nanoTime() > deadline) {
+                        break collect; // Common trigrams can list most of the vocabulary; stop counting in time
+                    }
+                }
+            }
+        }
+        String best = null;
+        int bestDistance = allowed + 1;
+        for (Map.Entry<String, Integer> entry : shared.entrySet()) {
+            if (entry.getValue() < needed) {
+                continue;
+            }
+            String candidate = entry.getKey();
+            int distance = distance(token, candidate, Math.min(allowed, bestDistance));
+            if (distance < bestDistance || (distance == bestDistance && isPreferred(candidate, best))) {
+                best = candidate;
+                bestDistance = distance;
+            }
+            if (System.nanoTime() > deadline) {
+                break; // Out of time; settle for the best so far
+            }
+        }
+        return bestDistance <= allowed ? best : null;
+    }
+
+    // Remove every token
+    public void clear() {
+        grams.clear();
+        tokenCounts.clear();
+        articleTokens.clear();
+    }
+
+    // Levenshtein distance between two strings, or limit + 1 once it is known to exceed limit
+    static int distance(String a, String b, int limit) {
+        if (Math.abs(a.length() - b.length()) > limit) {
+            return limit + 1;
+        }
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int substitution = previous[j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > limit) {
+                return limit + 1; // Every path through this row already needs too many edits
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return Math.min(previous[b.length()], limit + 1);
+    }
+
+    // Helper to check whether a candidate beats the best one at the same distance
+    private boolean isPreferred(String candidate, String best) {
+        if (best == null) {
+            return true;
+        }
+        int byCount = Integer.compare(tokenCounts.get(candidate), tokenCounts.get(best));
+        return byCount != 0 ? byCount > 0 : candidate.compareTo(best) < 0;
+    }
+
+    // Helper to list the distinct trigrams of a padded token
+    private static Set<String> gramsOf(String token) {
+        String padded = "" + PAD + PAD + token + PAD + PAD;
+        Set<String> result = new HashSet<>();
+        for (int i = 0; i + GRAM <= padded.length(); i++) {
+            result.add(padded.substring(i, i + GRAM));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,137 @@
+package application;
+
+import java.util.*;
+
+// Index from group name to the sorted IDs of the help articles in that group; groups are kept as Vocabulary IDs
+public class GroupIndex {
+
+    private Map<Integer, TreeSet<Long>> groupArticles = new HashMap<>(); // Group ID -> sorted article IDs
+    private Map<Long, int[]> articleGroups = new HashMap<>(); // Article ID -> group IDs it was indexed under
+
+    // Normalize a group name; the dashboards enter groups comma-separated with stray spaces
+    public static String normalize(String group) {
+        return group == null ? "" : group.trim();
+    }
+
+    // Index an article under each of its groups
+    public void add(User.HelpArticle article) {
+        remove(article.getId()); // Re-adding an article replaces its old entries
+        int[] groups = groupsOf(article);
+        for (int group : groups) {
+            groupArticles.computeIfAbsent(group, g -> new TreeSet<>()).add(article.getId());
+        }
+        articleGroups.put(article.getId(), groups);
+    }
+
+    // Index a batch of articles not indexed yet, touching each group's set once
+    public void addAll(Collection<User.HelpArticle> articles) {
+        Map<Integer, List<Long>> batchGroups = new HashMap<>();
+        for (User.HelpArticle article : articles) {
+            int[] groups = groupsOf(article);
+            for (int group : groups) {
+                batchGroups.computeIfAbsent(group, g -> new ArrayList<>()).add(article.getId());
+            }
+            articleGroups.put(article.getId(), groups);
+        }
+        for (Map.Entry<Integer, List<Long>> entry : batchGroups.entrySet()) {
+            groupArticles.computeIfAbsent(entry.getKey(), g -> new TreeSet<>()).addAll(entry.getValue());
+        }
+    }
+
+    // Helper to get the distinct vocabulary IDs of an article's normalized, non-empty groups
+    private static int[] groupsOf(User.HelpArticle article) {
+        List<String> names = article.getGroups();
+        if (names == null || names.isEmpty()) {
+            return new int[0];
+        }
+        int[] groups = new int[names.size()];
+        int count = 0;
+        for (String group : names) {
+            String name = normalize(group);
+            if (!name.isEmpty()) {
+                int id = Vocabulary.getInstance().idOf(name);
+                boolean seen = false;
+                for (int i = 0; i < count && !seen; i++) {
+                    seen = groups[i] == id;
+                }
+                if (!seen) {
+                    groups[count++] = id;
+                }
+            }
+        }
+        return count == groups.length ? groups : Arrays.copyOf(groups, count);
+    }
+
+    // Remove an article from the index using the groups it was indexed under
+    public void remove(long id) {
+        int[] groups = articleGroups.remove(id);
+        if (groups == null) {
+            return;
+        }
+        for (int group : groups) {
+            TreeSet<Long> ids = groupArticles.get(group);
+            ids.remove(id);
+            if (ids.isEmpty()) {
+                groupArticles.remove(group);
+            }
+        }
+    }
+
+    // Get the sorted IDs of the articles in a group
+    public List<Long> get(String group) {
+        TreeSet<Long> ids = articlesIn(group);
+        return ids == null ? new ArrayList<>() : new ArrayList<>(ids);
+    }
+
+    // Get the sorted IDs of the articles in every one of the groups
+    public List<Long> getAll(Collection<String> groups) {
+        List<TreeSet<Long>> sets = new ArrayList<>();
+        for (String group : new HashSet<>(groups)) {
+            TreeSet<Long> ids = articlesIn(group);
+            if (ids == null) {
+                return new ArrayList<>(); // A group with no articles means nothing is in all of them
+            }
+            sets.add(ids);
+        }
+        if (sets.isEmpty()) {
+            return new ArrayList<>();
+        }
+        // Walk the smallest group and probe the others
+        sets.sort(Comparator.comparingInt(TreeSet::size));
+        List<Long> results = new ArrayList<>();
+        for (Long id : sets.get(0)) {
+            boolean inAll = true;
+            for (int i = 1; i < sets.size() && inAll; i++) {
+                inAll = sets.get(i).contains(id);
+            }
+            if (inAll) {
+                results.add(id);
+            }
+        }
+        return results;
+    }
+
+    // Get the sorted IDs of the articles in at least one of the groups
+    public List<Long> getAny(Collection<String> groups) {
+        TreeSet<Long> union = new TreeSet<>();
+        for (String group : groups) {
+            TreeSet<Long> ids = articlesIn(group);
+            if (ids != null) {
+                union.addAll(ids);
+            }
+        }
+        return new ArrayList<>(union);
+    }
+
+    // Helper to get the articles of a group by name, or null if it has none
+    private TreeSet<Long> articlesIn(String group) {
+        int id = Vocabulary.getInstance().lookup(normalize(group));
+        return id < 0 ? null : groupArticles.get(id);
+    }
+
+    // Remove every article from the index
+    public void clear() {
+        groupArticles.clear();
+        articleGroups.clear();
+    }
+}
@@ -0,0 +1,42 @@
+package application;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Counts, rejected rows and throughput of a bulk article import
+public class ImportResult {
+
+    public static final int MAX_REPORTED_REJECTIONS = 100; // Rejections kept with their reason; later ones are only counted
+
+    private long imported = 0; // Articles stored
+    private long rejected = 0; // Rows that failed validation or reused a stored ID
+    private final List<String> rejections = new ArrayList<>(); // "line N: reason" for the first rejected rows
+    private long elapsedNanos = 0;
+
+    public long getImported() { return imported; }
+    public long getRejected() { return rejected; }
+    public List<String> getRejections() { return Collections.unmodifiableList(rejections); }
+    public long getElapsedNanos() { return elapsedNanos; }
+
+    // Rows read per second, accepted or not
+    public double getRowsPerSecond() {
+        return elapsedNanos == 0 ? 0 : (imported + rejected) * 1_000_000_000.0 / elapsedNanos;
+    }
+
+    void countImported(int count) { imported += count; }
+    void setElapsedNanos(long nanos) { elapsedNanos = nanos; }
+
+    void reject(long line, String reason) {
+        rejected++;
+        if (rejections.size() < MAX_REPORTED_REJECTIONS) {
+            rejections.add("line " + line + ": " + reason);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return imported + " imported, " + rejected + " rejected in " + (elapsedNanos / 1_000_000) + " ms ("
+                + Math.round(getRowsPerSecond()) + " rows/s)";
+    }
+}
@@ -0,0 +1,54 @@
+package application;
+
+import javax.management.openmbean.CompositeData;
+
+// Percentiles of a latency histogram in microseconds, as shown by JMX clients
+public class LatencySummary {
+
+    private final long count;
+    private final double meanMicros;
+    private final double p50Micros;
+    private final double p90Micros;
+    private final double p99Micros;
+    private final double p999Micros;
+    private final double maxMicros;
+
+    public LatencySummary(long count, double meanMicros, double p50Micros, double p90Micros, double p99Micros, double p999Micros, double maxMicros) {
+        this.count = count;
+        this.meanMicros = meanMicros;
+        this.p50Micros = p50Micros;
+        this.p90Micros = p90Micros;
+        this.p99Micros = p99Micros;
+        this.p999Micros = p999Micros;
+        this.maxMicros = maxMicros;
+    }
+
+    // Summarize a histogram of nanosecond durations
+    static LatencySummary of(LatencyHistogram histogram) {
+        return new LatencySummary(histogram.getCount(), histogram.getMean() / 1000.0,
+                histogram.getPercentile(0.50) / 1000.0, histogram.getPercentile(0.90) / 1000.0,
+                histogram.getPercentile(0.99) / 1000.0, histogram.getPercentile(0.999) / 1000.0,
+                histogram.getMax() / 1000.0);
+    }
+
+    // Rebuild a summary read through JMX, e.g. by an MXBean proxy
+    public static LatencySummary from(CompositeData data) {
+        return new LatencySummary((Long) data.get("count"), (Double) data.get("meanMicros"),
+                (Double) data.get("p50Micros"), (Double) data.get("p90Micros"), (Double) data.get("p99Micros"),
+                (Double) data.get("p999Micros"), (Double) data.get("maxMicros"));
+    }
+
+    public long getCount() { return count; }
+    public double getMeanMicros() { return meanMicros; }
+    public double getP50Micros() { return p50Micros; }
+    public double getP90Micros() { return p90Micros; }
+    public double getP99Micros() { return p99Micros; }
+    public double getP999Micros() { return p999Micros; }
+    public double getMaxMicros() { return maxMicros; }
+
+    @Override
+    public String toString() {
+        return String.format("%d calls, mean %.1f us, p50 %.1f us, p99 %.1f us, max %.1f us",
+                count, meanMicros, p50Micros, p99Micros, maxMicros);
+    }
+}
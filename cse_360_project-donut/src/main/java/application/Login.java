@@ -1,125 +1,701 @@
 package application;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class Login {
 
-    private List<User> users = new ArrayList<>(); // List to store users
-    private static Login instance = null; // Singleton instance
+    private static final int LOCK_STRIPES = 64; // Number of per-user lock stripes (power of two)
+    private static final int VERIFY_QUEUE_SIZE = 1024; // Pending password checks before new ones are rejected
+    private static final long OTP_TICK_MILLIS = 100; // How late a one-time password may be marked expired
+
+    private final Map<String, User> users = new ConcurrentHashMap<>(); // Users keyed by username
+    private final Map<String, User> usersByEmail = new ConcurrentHashMap<>(); // Secondary index of users keyed by email
+    private final ConcurrentSkipListMap<Long, User> registrationOrder = new ConcurrentSkipListMap<>(); // Users in registration order
+    private final AtomicLong registrationSeq = new AtomicLong(); // Source of registration order keys
+    private volatile long registryVersion = 0; // Number of registrations and deletions, written under registryLock
+    private volatile Snapshot<User> userSnapshot = new Snapshot<>(0, Collections.emptyList()); // Latest snapshot taken
+    private final Object registryLock = new Object(); // Serializes register/delete so the indexes stay consistent
+    private final Object[] userLocks = new Object[LOCK_STRIPES]; // Striped locks for per-user updates
+    private final ExecutorService verifyExecutor = newVerifyExecutor(); // Bounded pool for slow password checks
+    private final TimingWheel otpExpiryWheel = new TimingWheel(OTP_TICK_MILLIS, System.currentTimeMillis()); // Marks one-time passwords expired
+    private volatile PasswordHasher.Hash unknownUserHash; // Checked for unknown usernames so misses cost as much as hits
+    private volatile DurableStore store; // Write-ahead log of the open data directory, or null if changes are not saved
+
+    // Lazily initialized holder, so the singleton is safely published without locking
+    private static class Holder {
+        private static final Login INSTANCE = new Login();
+    }
 
     // Method to get the singleton instance
     public static Login getInstance() {
-        if (instance == null) {
-            instance = new Login();
-        }
-        return instance;
+        return Holder.INSTANCE;
     }
 
-    private Login() {} // Private constructor to prevent instantiation
+    private Login() { // Private constructor to prevent instantiation
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            userLocks[i] = new Object();
+        }
+        otpExpiryWheel.start("otp-expiry");
+    }
 
-    // Method to authenticate a user
+    // Method to authenticate a user; lock-free, reads the registry directly.
+    // Password hashing is deliberately slow, so UI code should use authenticateAsync instead.
     public boolean authenticate(String username, String password) {
-        for (User user : users) {
-            if (user.getUsername().equals(username)) {
-                // Check for one-time password expiry
-                if (user.isOneTimePassword()) {
-                    if (LocalDateTime.now().isAfter(user.getOtpExpiry())) {
-                        System.out.println("One-time password has expired. Please reset your password.");
-                        return false;
-                    }
-                }
-                // Check if the password matches
-                if (new String(user.getPassword()).equals(password)) {
-                    return true; // Authentication successful
-                }
-            }
+        long start = System.nanoTime();
+        int outcome = checkCredentials(username, password);
+        Metrics.getInstance().recordAuthentication(outcome, System.nanoTime() - start);
+        return outcome == Metrics.AUTH_SUCCESS;
+    }
+
+    // Helper to check a username and password; returns one of the Metrics.AUTH_ outcomes
+    private int checkCredentials(String username, String password) {
+        User user = users.get(username);
+        if (user == null) {
+            PasswordHasher.verify(password, getUnknownUserHash()); // Same cost as a real check
+            return Metrics.AUTH_FAILURE; // Authentication failed
+        }
+        // Check for one-time password expiry; the expiry wheel sets the flag once the expiry passes.
+        // Callers tell the user, so nothing is printed on this path.
+        if (user.isOtpExpired()) {
+            return Metrics.AUTH_OTP_EXPIRED;
+        }
+        // Check if the password matches
+        return user.verifyPassword(password) ? Metrics.AUTH_SUCCESS : Metrics.AUTH_FAILURE;
+    }
+
+    // Method to authenticate a user on the bounded verification pool, off the caller's thread.
+    // The future fails with RejectedExecutionException when too many checks are already queued.
+    public CompletableFuture<Boolean> authenticateAsync(String username, String password) {
+        return CompletableFuture.supplyAsync(() -> authenticate(username, password), verifyExecutor);
+    }
+
+    // Helper to build the verification pool: one daemon thread per core and a bounded queue
+    private static ExecutorService newVerifyExecutor() {
+        int threads = Runtime.getRuntime().availableProcessors();
+        AtomicInteger count = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(VERIFY_QUEUE_SIZE), runnable -> {
+                    Thread thread = new Thread(runnable, "password-verify-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    // Helper to lazily create the hash checked for unknown usernames
+    private PasswordHasher.Hash getUnknownUserHash() {
+        PasswordHasher.Hash hash = unknownUserHash;
+        if (hash == null || hash.getIterations() != PasswordHasher.getIterations()) {
+            hash = PasswordHasher.hash("unknown user");
+            unknownUserHash = hash;
         }
-        return false; // Authentication failed
+        return hash;
     }
 
     // Method to register a new user
     public User registerUser(String username, String password, String role, boolean isOneTimePassword, LocalDateTime otpExpiry) {
+        long start = System.nanoTime();
         User newUser = new User(username, password, role);
         newUser.setOneTimePassword(isOneTimePassword);
         newUser.setOtpExpiry(otpExpiry);
-        users.add(newUser); // Add the new user to the list
+        long seq;
+        synchronized (registryLock) {
+            addToRegistry(newUser);
+            seq = journalUser(newUser);
+        }
+        awaitJournal(seq);
+        Metrics.getInstance().recordRegistration(System.nanoTime() - start);
         return newUser;
     }
 
+    // Helper to add a user to the registry and its indexes; also used when users are loaded from a data directory
+    void addToRegistry(User newUser) {
+        synchronized (registryLock) {
+            newUser.setRegistrationSeq(registrationSeq.incrementAndGet());
+            User replaced = users.put(newUser.getUsername(), newUser); // Add the new user to the registry
+            if (replaced != null) {
+                // Re-registering a username replaces the old account
+                registrationOrder.remove(replaced.getRegistrationSeq());
+                unindexEmail(replaced);
+                cancelOtpExpiry(replaced);
+            }
+            registrationOrder.put(newUser.getRegistrationSeq(), newUser);
+            indexEmail(newUser);
+            scheduleOtpExpiry(newUser);
+            registryVersion++;
+        }
+    }
+
+    // Method to register a user on the verification pool, since hashing the password is deliberately slow
+    public CompletableFuture<User> registerUserAsync(String username, String password, String role,
+                                                     boolean isOneTimePassword, LocalDateTime otpExpiry) {
+        return CompletableFuture.supplyAsync(
+                () -> registerUser(username, password, role, isOneTimePassword, otpExpiry), verifyExecutor);
+    }
+
     // Method to delete a user
     public boolean deleteUser(String usernameToDelete) {
-        return users.removeIf(user -> user.getUsername().equals(usernameToDelete));
+        long seq;
+        synchronized (registryLock) {
+            User removed = users.remove(usernameToDelete);
+            if (removed == null) {
+                return false;
+            }
+            registrationOrder.remove(removed.getRegistrationSeq());
+            unindexEmail(removed);
+            cancelOtpExpiry(removed);
+            registryVersion++;
+            DurableStore durableStore = store;
+            seq = durableStore == null ? 0 : durableStore.userDeleted(usernameToDelete);
+            // Drop the articles only this user could see
+            ArticleRepository articleRepository = ArticleRepository.getInstance();
+            for (Long id : removed.getArticleIds()) {
+                if (!articleRepository.isShared(id)) {
+                    articleRepository.remove(id);
+                }
+            }
+        }
+        awaitJournal(seq);
+        return true;
     }
 
     // Method to reset a user's password
     public boolean resetPassword(String usernameToReset, String newPassword) {
-        for (User user : users) {
-            if (user.getUsername().equals(usernameToReset)) {
-                user.setPassword(newPassword.getBytes());
-                user.setOneTimePassword(false); // Reset OTP flag
-                user.setOtpExpiry(null); // Clear OTP expiry
-                return true;
+        PasswordHasher.Hash hash = PasswordHasher.hash(newPassword); // Hash before locking, it is slow
+        long seq;
+        synchronized (lockFor(usernameToReset)) {
+            User user = users.get(usernameToReset);
+            if (user == null) {
+                return false;
             }
+            user.setPasswordHash(hash);
+            user.setOneTimePassword(false); // Reset OTP flag, cancelling the pending expiry
+            user.setOtpExpiry(null); // Clear OTP expiry
+            seq = journalUser(user);
         }
-        return false;
+        awaitJournal(seq);
+        return true;
+    }
+
+    // Method to reset a user's password on the verification pool, off the caller's thread
+    public CompletableFuture<Boolean> resetPasswordAsync(String usernameToReset, String newPassword) {
+        return CompletableFuture.supplyAsync(() -> resetPassword(usernameToReset, newPassword), verifyExecutor);
+    }
+
+    // Method to set or clear a user's one-time password expiry
+    public boolean updateOneTimePassword(String username, boolean isOneTimePassword, LocalDateTime otpExpiry) {
+        long seq;
+        synchronized (lockFor(username)) {
+            User user = users.get(username);
+            if (user == null) {
+                return false;
+            }
+            user.setOtpExpiry(otpExpiry); // Each setter reschedules the expiry
+            user.setOneTimePassword(isOneTimePassword);
+            seq = journalUser(user);
+        }
+        awaitJournal(seq);
+        return true;
     }
 
-    // Method to list all users
+    // Helper to mark a user's one-time password expired once its expiry passes, replacing any pending expiry
+    private void scheduleOtpExpiry(User user) {
+        synchronized (user) {
+            cancelOtpExpiry(user);
+            LocalDateTime otpExpiry = user.getOtpExpiry();
+            if (!user.isOneTimePassword() || otpExpiry == null) {
+                user.setOtpExpired(false);
+                return;
+            }
+            long deadline = otpExpiry.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            user.setOtpExpired(deadline <= System.currentTimeMillis());
+            if (!user.isOtpExpired()) {
+                user.setOtpExpiryTimeout(otpExpiryWheel.schedule(deadline, () -> expireOtp(user, otpExpiry)));
+            }
+        }
+    }
+
+    // Helper called by User when its one-time password or expiry changes; only registered users are scheduled,
+    // the others are when they are registered
+    void otpChanged(User user) {
+        if (users.get(user.getUsername()) == user) {
+            scheduleOtpExpiry(user);
+        }
+    }
+
+    // Helper to drop a user's pending one-time password expiry
+    private void cancelOtpExpiry(User user) {
+        synchronized (user) {
+            TimingWheel.Timeout timeout = user.getOtpExpiryTimeout();
+            if (timeout != null) {
+                timeout.cancel();
+                user.setOtpExpiryTimeout(null);
+            }
+        }
+    }
+
+    // Helper run by the expiry wheel; skipped if the one-time password changed after the expiry was scheduled
+    private void expireOtp(User user, LocalDateTime otpExpiry) {
+        synchronized (user) {
+            if (user.isOneTimePassword() && user.getOtpExpiry() == otpExpiry) {
+                user.setOtpExpired(true);
+                user.setOtpExpiryTimeout(null);
+            }
+        }
+    }
+
+    // Method to list all users, in registration order, as a read-only list that later registrations do not affect
     public List<User> listUsers() {
-        return new ArrayList<>(users); // Return a copy of the users list
+        return snapshotUsers().getItems();
+    }
+
+    // Take a consistent, read-only view of the registered users; repeated calls share one snapshot until
+    // a user is registered or deleted
+    public Snapshot<User> snapshotUsers() {
+        Snapshot<User> latest = userSnapshot;
+        if (latest.getVersion() == registryVersion) {
+            return latest;
+        }
+        synchronized (registryLock) {
+            if (userSnapshot.getVersion() != registryVersion) {
+                userSnapshot = new Snapshot<>(registryVersion, registrationOrder.values());
+            }
+            return userSnapshot;
+        }
     }
 
     // Method to find a user by username
     public User findUser(String username) {
-        for (User user : users) {
-            if (user.getUsername().equals(username)) {
-                return user; // User found
+        return users.get(username); // Null if the user is not found
+    }
+
+    // Method to find a user by email address
+    public User findUserByEmail(String email) {
+        return email == null ? null : usersByEmail.get(email);
+    }
+
+    // Method to change a user's email, keeping the email index current
+    public void updateEmail(User user, String email) {
+        long seq = 0;
+        synchronized (registryLock) {
+            unindexEmail(user);
+            user.setEmail(email);
+            if (users.get(user.getUsername()) == user) {
+                indexEmail(user); // Only registered users are indexed
+                seq = journalUser(user);
+            }
+        }
+        awaitJournal(seq);
+    }
+
+    // Method to save changes made directly to a registered user, such as the profile entered during account setup
+    public void saveUser(User user) {
+        long seq = 0;
+        synchronized (registryLock) {
+            if (users.get(user.getUsername()) == user) {
+                seq = journalUser(user);
+            }
+        }
+        awaitJournal(seq);
+    }
+
+    // Method to keep users and articles in a data directory: loads what was saved there and logs every later change.
+    // Call once at startup, before any user or article exists in memory. Returns false if the directory is unusable.
+    public boolean openDataDirectory(String directory) {
+        if (store != null) {
+            System.out.println("A data directory is already open.");
+            return false;
+        }
+        DurableStore durableStore = new DurableStore(Paths.get(directory), this, ArticleRepository.getInstance());
+        try {
+            durableStore.open(); // Replays into the registry while store is still null, so nothing is logged twice
+            store = durableStore;
+            System.out.println("Loaded " + users.size() + " users and " + ArticleRepository.getInstance().size() + " articles from " + directory + ".");
+            return true;
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Error opening data directory: " + e.getMessage());
+            try {
+                durableStore.close();
+            } catch (IOException closeError) {
+                // Already reporting the original error
             }
+            return false;
         }
-        return null; // User not found
     }
 
-    // Method to backup help articles to a file
-    public void backupHelpArticles(String filename) {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(filename))) {
-            List<User.HelpArticle> allArticles = new ArrayList<>();
-            // Collect all help articles from all users
-            for (User user : users) {
-                allArticles.addAll(user.getAllHelpArticles());
+    // Method to compact the open data directory's log into a snapshot now, rather than waiting for the next automatic one
+    public boolean compactDataDirectory() {
+        DurableStore durableStore = store;
+        return durableStore != null && durableStore.snapshot();
+    }
+
+    // Method to stop logging changes, writing out everything logged so far
+    public void closeDataDirectory() {
+        DurableStore durableStore = store;
+        store = null;
+        if (durableStore != null) {
+            try {
+                durableStore.close();
+            } catch (IOException e) {
+                System.out.println("Error closing data directory: " + e.getMessage());
             }
-            oos.writeObject(allArticles); // Serialize the articles list
+        }
+    }
+
+    // Helper to log a user's current state if a data directory is open; returns the record number, or 0
+    private long journalUser(User user) {
+        DurableStore durableStore = store;
+        return durableStore == null ? 0 : durableStore.userChanged(user);
+    }
+
+    // Helper to wait, outside any lock, until a logged change is on disk; group commit lets concurrent callers share one fsync
+    private void awaitJournal(long seq) {
+        DurableStore durableStore = store;
+        if (durableStore != null && seq > 0 && !durableStore.awaitDurable(seq)) {
+            System.out.println("Warning: the change could not be saved to the data directory.");
+        }
+    }
+
+    // Helper to pick the lock stripe guarding a username
+    private Object lockFor(String username) {
+        int h = username == null ? 0 : username.hashCode();
+        h ^= (h >>> 16);
+        return userLocks[h & (LOCK_STRIPES - 1)];
+    }
+
+    // Helper to add a user to the email index
+    private void indexEmail(User user) {
+        if (user.getEmail() != null && !user.getEmail().isEmpty()) {
+            usersByEmail.put(user.getEmail(), user);
+        }
+    }
+
+    // Helper to remove a user from the email index
+    private void unindexEmail(User user) {
+        if (user.getEmail() != null) {
+            usersByEmail.remove(user.getEmail(), user);
+        }
+    }
+
+    // Method to backup help articles to a file, streaming each stored article once
+    public boolean backupHelpArticles(String filename) {
+        return backupHelpArticles(filename, BackupProgress.NONE);
+    }
+
+    // Method to backup help articles while reporting progress; returns true if the backup completed
+    public boolean backupHelpArticles(String filename, BackupProgress progress) {
+        long start = System.nanoTime();
+        ArticleRepository articleRepository = ArticleRepository.getInstance();
+        List<User.HelpArticle> articles;
+        long mark;
+        synchronized (articleRepository) { // Take the articles and the journal mark they match together
+            articles = articleRepository.getAll();
+            mark = articleRepository.getChangeMark();
+        }
+        long generation = newBackupGeneration();
+        try (ArticleBackupWriter writer = new ArticleBackupWriter(filename, ArticleBackupWriter.FULL, generation, 0)) {
+            for (User.HelpArticle article : articles) {
+                writer.write(article); // Encoded and buffered one article at a time
+                reportEvery(progress, writer.getArticlesWritten(), writer.getBytesWritten());
+            }
+            writer.finish();
+            report(progress, writer.getArticlesWritten(), writer.getBytesWritten());
+            articleRepository.markBackedUp(generation, mark);
+            Metrics.getInstance().recordBackup(writer.getBytesWritten(), System.nanoTime() - start);
             System.out.println("Backup completed successfully.");
+            return true;
+        } catch (CancellationException e) {
+            new File(filename).delete(); // Do not leave a partial backup behind
+            System.out.println("Backup cancelled.");
+        } catch (RuntimeException e) {
+            new File(filename).delete(); // A progress callback or encoding failure leaves nothing usable either
+            System.out.println("Error during backup: " + e);
+        } catch (IOException e) {
+            System.out.println("Error during backup: " + e.getMessage());
+        }
+        return false;
+    }
+
+    // Method to backup only the articles added, updated or removed since the previous backup
+    public boolean backupHelpArticleChanges(String filename) {
+        return backupHelpArticleChanges(filename, BackupProgress.NONE);
+    }
+
+    // Method to backup the changes while reporting progress; returns true if the backup completed
+    public boolean backupHelpArticleChanges(String filename, BackupProgress progress) {
+        long start = System.nanoTime();
+        ArticleRepository articleRepository = ArticleRepository.getInstance();
+        List<Long> changedIds;
+        boolean cleared;
+        long parentGeneration;
+        long mark;
+        synchronized (articleRepository) {
+            parentGeneration = articleRepository.getBackupGeneration();
+            changedIds = articleRepository.getChangedIds();
+            cleared = articleRepository.isClearedSinceBackup();
+            mark = articleRepository.getChangeMark();
+        }
+        if (parentGeneration == 0) {
+            System.out.println("No previous backup to build on. Please take a full backup first.");
+            return false;
+        }
+        long generation = newBackupGeneration();
+        try (ArticleBackupWriter writer = new ArticleBackupWriter(filename, ArticleBackupWriter.DELTA, generation, parentGeneration)) {
+            if (cleared) {
+                writer.writeClear();
+            }
+            long processed = 0;
+            for (Long id : changedIds) {
+                User.HelpArticle article = articleRepository.get(id);
+                if (article != null) {
+                    writer.write(article);
+                } else {
+                    writer.writeRemove(id);
+                }
+                reportEvery(progress, ++processed, writer.getBytesWritten());
+            }
+            writer.finish();
+            report(progress, processed, writer.getBytesWritten());
+            articleRepository.markBackedUp(generation, mark);
+            Metrics.getInstance().recordBackup(writer.getBytesWritten(), System.nanoTime() - start);
+            System.out.println("Incremental backup completed successfully.");
+            return true;
+        } catch (CancellationException e) {
+            new File(filename).delete(); // Do not leave a partial backup behind
+            System.out.println("Backup cancelled.");
+        } catch (RuntimeException e) {
+            new File(filename).delete(); // A progress callback or encoding failure leaves nothing usable either
+            System.out.println("Error during backup: " + e);
         } catch (IOException e) {
             System.out.println("Error during backup: " + e.getMessage());
         }
+        return false;
+    }
+
+    // Method to restore help articles from a file; restored articles are shared with every user
+    public RestoreResult restoreHelpArticles(String filename, boolean merge) {
+        return restoreHelpArticles(filename, new ArrayList<>(), merge, BackupProgress.NONE);
     }
 
-    // Method to restore help articles from a file
-    public void restoreHelpArticles(String filename, boolean merge) {
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(filename))) {
-            List<User.HelpArticle> restoredArticles = (List<User.HelpArticle>) ois.readObject();
-            for (User user : users) {
-                if (merge) {
-                    // Merge articles without duplicates
+    // Method to restore help articles from a full backup followed by its chain of incremental backups, in any order
+    public RestoreResult restoreHelpArticles(String filename, List<String> deltaFilenames, boolean merge) {
+        return restoreHelpArticles(filename, deltaFilenames, merge, BackupProgress.NONE);
+    }
+
+    // Method to restore help articles while reporting progress (bytes read across all files);
+    // returns what happened to each article, or null if the restore failed.
+    // A cancelled restore keeps the articles restored so far and is flagged in the result.
+    public RestoreResult restoreHelpArticles(String filename, List<String> deltaFilenames, boolean merge, BackupProgress progress) {
+        long start = System.nanoTime();
+        RestoreResult result = new RestoreResult();
+        try {
+            long bytesRead;
+            if (ArticleBackupReader.isBackupFile(filename)) {
+                List<String> chain = orderBackupChain(filename, deltaFilenames);
+                long generation;
+                try (ArticleBackupReader reader = new ArticleBackupReader(filename)) {
+                    generation = reader.getGeneration();
+                    if (!merge) {
+                        clearArticles(); // Replace existing articles with restored ones
+                    }
+                    User.HelpArticle article;
+                    while ((article = reader.read()) != null) {
+                        restoreArticle(article, result);
+                        reportEvery(progress, result.getProcessed(), reader.getBytesRead());
+                    }
+                    bytesRead = reader.getBytesRead();
+                }
+                for (String deltaFilename : chain) {
+                    bytesRead += applyDelta(deltaFilename, result, progress, bytesRead);
+                    try (ArticleBackupReader reader = new ArticleBackupReader(deltaFilename)) {
+                        generation = reader.getGeneration();
+                    }
+                }
+                report(progress, result.getProcessed(), bytesRead);
+                if (!merge) {
+                    // The articles now match the last backup restored, so later incremental backups can build on it
+                    ArticleRepository articleRepository = ArticleRepository.getInstance();
+                    synchronized (articleRepository) {
+                        articleRepository.markBackedUp(generation, articleRepository.getChangeMark());
+                    }
+                }
+            } else {
+                // Backups written with Java serialization before the streaming format
+                if (!deltaFilenames.isEmpty()) {
+                    throw new IOException("Incremental backups need a full backup in the streaming format");
+                }
+                try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(filename))) {
+                    List<User.HelpArticle> restoredArticles = (List<User.HelpArticle>) ois.readObject();
+                    if (!merge) {
+                        clearArticles(); // Replace existing articles with restored ones
+                    }
                     for (User.HelpArticle article : restoredArticles) {
-                        boolean exists = user.getAllHelpArticles().stream()
-                                .anyMatch(existingArticle -> existingArticle.getId() == article.getId());
-                        if (!exists) {
-                            user.addHelpArticle(article);
-                        }
+                        restoreArticle(article, result);
                     }
-                } else {
-                    // Replace existing articles with restored ones
-                    user.getAllHelpArticles().clear();
-                    user.getAllHelpArticles().addAll(restoredArticles);
                 }
+                bytesRead = new File(filename).length();
+                report(progress, result.getProcessed(), bytesRead);
             }
-            System.out.println("Restore completed successfully.");
+            Metrics.getInstance().recordRestore(bytesRead, System.nanoTime() - start);
+            System.out.println("Restore completed successfully: " + result + ".");
+            return result;
+        } catch (CancellationException e) {
+            result.markCancelled();
+            System.out.println("Restore cancelled: " + result + ".");
+            return result;
         } catch (IOException | ClassNotFoundException e) {
             System.out.println("Error during restore: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Method to bulk import help articles from a JSON Lines (.jsonl) or CSV (.csv) file; imported articles are shared
+    // with every user. Returns the import counts, or null if the file could not be read.
+    public ImportResult importHelpArticles(String filename) {
+        ArticleImporter.Format format = ArticleImporter.formatOf(filename);
+        if (format == null) {
+            System.out.println("Unsupported import file. Use a .jsonl or .csv file.");
+            return null;
+        }
+        return importHelpArticles(filename, format);
+    }
+
+    // Method to bulk import help articles from a file in the given format
+    public ImportResult importHelpArticles(String filename, ArticleImporter.Format format) {
+        ArticleImporter importer = new ArticleImporter(ArticleRepository.getInstance(), ArticleImporter.DEFAULT_BATCH_SIZE);
+        try (Reader reader = Files.newBufferedReader(Paths.get(filename), StandardCharsets.UTF_8)) {
+            ImportResult result = importer.importArticles(reader, format);
+            System.out.println("Import completed: " + result + ".");
+            for (String rejection : result.getRejections()) {
+                System.out.println("Rejected " + rejection);
+            }
+            return result;
+        } catch (IOException e) {
+            System.out.println("Error during import: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Helper to report progress, turning a cancel request into a CancellationException
+    private void report(BackupProgress progress, long articlesProcessed, long bytesProcessed) {
+        if (!progress.update(articlesProcessed, bytesProcessed)) {
+            throw new CancellationException();
+        }
+    }
+
+    // Helper to report progress every BackupProgress.REPORT_INTERVAL articles
+    private void reportEvery(BackupProgress progress, long articlesProcessed, long bytesProcessed) {
+        if (articlesProcessed % BackupProgress.REPORT_INTERVAL == 0) {
+            report(progress, articlesProcessed, bytesProcessed);
+        }
+    }
+
+    // Helper to put the incremental backups in the order they build on the full backup, checking before anything
+    // is restored that each one belongs to the chain
+    private List<String> orderBackupChain(String filename, List<String> deltaFilenames) throws IOException {
+        long generation;
+        try (ArticleBackupReader reader = new ArticleBackupReader(filename)) {
+            if (reader.isDelta()) {
+                throw new IOException(filename + " is an incremental backup, not a full one");
+            }
+            generation = reader.getGeneration();
+        }
+        Map<Long, String> byParent = new HashMap<>(); // Parent generation -> delta building on it
+        Map<String, Long> generations = new HashMap<>();
+        for (String deltaFilename : deltaFilenames) {
+            try (ArticleBackupReader reader = new ArticleBackupReader(deltaFilename)) {
+                if (!reader.isDelta() || byParent.putIfAbsent(reader.getParentGeneration(), deltaFilename) != null) {
+                    throw new IOException(deltaFilename + " does not follow the previous backup in the chain");
+                }
+                generations.put(deltaFilename, reader.getGeneration());
+            }
+        }
+        List<String> chain = new ArrayList<>(deltaFilenames.size());
+        String next;
+        while ((next = byParent.remove(generation)) != null) {
+            chain.add(next);
+            generation = generations.get(next);
+        }
+        if (!byParent.isEmpty()) {
+            throw new IOException(byParent.values().iterator().next() + " does not follow the previous backup in the chain");
+        }
+        return chain;
+    }
+
+    // Helper to apply the changes recorded in an incremental backup, returning the bytes read
+    private long applyDelta(String filename, RestoreResult result, BackupProgress progress, long bytesBefore) throws IOException {
+        ArticleRepository articleRepository = ArticleRepository.getInstance();
+        try (ArticleBackupReader reader = new ArticleBackupReader(filename)) {
+            byte type;
+            while ((type = reader.next()) != ArticleBackupWriter.END) {
+                if (type == ArticleBackupWriter.ARTICLE) {
+                    // Updated articles replace the stored copy and keep its owner
+                    User.HelpArticle article = reader.getArticle();
+                    if (articleRepository.addIfAbsent(article, true) == null) {
+                        result.countAdded();
+                    } else {
+                        articleRepository.add(article, false);
+                        result.countUpdated();
+                    }
+                } else if (type == ArticleBackupWriter.REMOVE) {
+                    if (articleRepository.remove(reader.getRemovedId()) != null) {
+                        result.countRemoved();
+                    }
+                } else if (type == ArticleBackupWriter.CLEAR) {
+                    clearArticles();
+                }
+                reportEvery(progress, result.getProcessed(), bytesBefore + reader.getBytesRead());
+            }
+            return reader.getBytesRead();
+        }
+    }
+
+    // Helper to pick a generation number identifying a backup in a chain
+    private long newBackupGeneration() {
+        long generation;
+        do {
+            generation = ThreadLocalRandom.current().nextLong();
+        } while (generation == 0); // 0 means "no backup"
+        return generation;
+    }
+
+    // Helper to add a restored article as shared; an ID that is already stored is a single hash lookup
+    private void restoreArticle(User.HelpArticle article, RestoreResult result) {
+        User.HelpArticle existing = ArticleRepository.getInstance().addIfAbsent(article, true);
+        if (existing == null) {
+            result.countAdded();
+        } else if (existing.hasSameContent(article)) {
+            result.countSkipped();
+        } else {
+            result.countConflicted(); // Keep the stored copy
+        }
+    }
+
+    // Helper to remove every article and every user's ownership of them
+    private void clearArticles() {
+        ArticleRepository.getInstance().clear();
+        for (User user : registrationOrder.values()) {
+            user.getArticleIds().clear();
         }
     }
 }
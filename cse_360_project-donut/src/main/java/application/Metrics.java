@@ -0,0 +1,151 @@
+package application;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+// Counters and latency histograms for authentication, registration, search, group listing, backup and restore.
+// Recording is lock-free and allocation-free; JMX clients such as JConsole read them through MetricsMXBean.
+public class Metrics implements MetricsMXBean {
+
+    public static final String OBJECT_NAME = "application:type=Metrics";
+
+    // Outcomes of an authentication
+    public static final int AUTH_SUCCESS = 0;
+    public static final int AUTH_FAILURE = 1;
+    public static final int AUTH_OTP_EXPIRED = 2;
+
+    private final LongAdder authenticationSuccesses = new LongAdder();
+    private final LongAdder authenticationFailures = new LongAdder();
+    private final LongAdder authenticationOtpExpired = new LongAdder();
+    private final LatencyHistogram authenticationLatency = new LatencyHistogram();
+    private final LatencyHistogram registrationLatency = new LatencyHistogram();
+    private final LatencyHistogram searchLatency = new LatencyHistogram();
+    private final LatencyHistogram groupListingLatency = new LatencyHistogram();
+    private final LongAdder backupBytes = new LongAdder();
+    private final LatencyHistogram backupLatency = new LatencyHistogram();
+    private final LongAdder restoreBytes = new LongAdder();
+    private final LatencyHistogram restoreLatency = new LatencyHistogram();
+    private boolean registered = false; // Whether the MXBean is registered, guarded by this
+
+    // Lazily initialized holder, so the singleton is safely published without locking
+    private static class Holder {
+        private static final Metrics INSTANCE = new Metrics();
+    }
+
+    // Method to get the singleton instance
+    public static Metrics getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    private Metrics() {} // Private constructor to prevent instantiation
+
+    // Register the metrics with the platform MBean server; returns false if that failed
+    public synchronized boolean registerMBean() {
+        if (registered) {
+            return true;
+        }
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(this, name);
+            }
+            registered = true;
+            return true;
+        } catch (JMException e) {
+            System.out.println("Error registering metrics: " + e.getMessage());
+            return false;
+        }
+    }
+
+    // Methods to record what happened and how long it took
+
+    public void recordAuthentication(int outcome, long nanos) {
+        if (outcome == AUTH_SUCCESS) {
+            authenticationSuccesses.increment();
+        } else if (outcome == AUTH_OTP_EXPIRED) {
+            authenticationOtpExpired.increment();
+        } else {
+            authenticationFailures.increment();
+        }
+        authenticationLatency.record(nanos);
+    }
+
+    public void recordRegistration(long nanos) {
+        registrationLatency.record(nanos);
+    }
+
+    public void recordSearch(long nanos) {
+        searchLatency.record(nanos);
+    }
+
+    public void recordGroupListing(long nanos) {
+        groupListingLatency.record(nanos);
+    }
+
+    public void recordBackup(long bytes, long nanos) {
+        backupBytes.add(bytes);
+        backupLatency.record(nanos);
+    }
+
+    public void recordRestore(long bytes, long nanos) {
+        restoreBytes.add(bytes);
+        restoreLatency.record(nanos);
+    }
+
+    @Override
+    public long getAuthenticationSuccesses() { return authenticationSuccesses.sum(); }
+    @Override
+    public long getAuthenticationFailures() { return authenticationFailures.sum(); }
+    @Override
+    public long getAuthenticationOtpExpired() { return authenticationOtpExpired.sum(); }
+    @Override
+    public LatencySummary getAuthenticationLatency() { return LatencySummary.of(authenticationLatency); }
+
+    @Override
+    public long getRegistrations() { return registrationLatency.getCount(); }
+    @Override
+    public LatencySummary getRegistrationLatency() { return LatencySummary.of(registrationLatency); }
+
+    @Override
+    public long getSearches() { return searchLatency.getCount(); }
+    @Override
+    public LatencySummary getSearchLatency() { return LatencySummary.of(searchLatency); }
+
+    @Override
+    public long getGroupListings() { return groupListingLatency.getCount(); }
+    @Override
+    public LatencySummary getGroupListingLatency() { return LatencySummary.of(groupListingLatency); }
+
+    @Override
+    public long getBackups() { return backupLatency.getCount(); }
+    @Override
+    public long getBackupBytes() { return backupBytes.sum(); }
+    @Override
+    public LatencySummary getBackupLatency() { return LatencySummary.of(backupLatency); }
+
+    @Override
+    public long getRestores() { return restoreLatency.getCount(); }
+    @Override
+    public long getRestoreBytes() { return restoreBytes.sum(); }
+    @Override
+    public LatencySummary getRestoreLatency() { return LatencySummary.of(restoreLatency); }
+
+    @Override
+    public void reset() {
+        authenticationSuccesses.reset();
+        authenticationFailures.reset();
+        authenticationOtpExpired.reset();
+        authenticationLatency.reset();
+        registrationLatency.reset();
+        searchLatency.reset();
+        groupListingLatency.reset();
+        backupBytes.reset();
+        backupLatency.reset();
+        restoreBytes.reset();
+        restoreLatency.reset();
+    }
+}
@@ -0,0 +1,30 @@
+package application;
+
+// Management interface of the application metrics, registered as application:type=Metrics
+public interface MetricsMXBean {
+
+    long getAuthenticationSuccesses();
+    long getAuthenticationFailures();
+    long getAuthenticationOtpExpired(); // Rejected because the one-time password expired
+    LatencySummary getAuthenticationLatency();
+
+    long getRegistrations();
+    LatencySummary getRegistrationLatency();
+
+    long getSearches();
+    LatencySummary getSearchLatency();
+
+    long getGroupListings();
+    LatencySummary getGroupListingLatency();
+
+    long getBackups();
+    long getBackupBytes();
+    LatencySummary getBackupLatency();
+
+    long getRestores();
+    long getRestoreBytes();
+    LatencySummary getRestoreLatency();
+
+    // Zero every counter and histogram
+    void reset();
+}
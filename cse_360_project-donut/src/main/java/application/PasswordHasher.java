@@ -0,0 +1,80 @@
+package application;
+
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+// Salted PBKDF2 password hashing with constant-time verification
+public class PasswordHasher {
+
+    public static final int DEFAULT_ITERATIONS = 210_000; // PBKDF2-HMAC-SHA256 cost recommended by OWASP
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    // Cost used for new hashes; existing hashes keep the cost they were created with
+    private static volatile int iterations = Integer.getInteger("donut.password.iterations", DEFAULT_ITERATIONS);
+
+    private PasswordHasher() {} // Static helpers only
+
+    // Immutable salted hash of a password, together with the cost it was derived with
+    public static class Hash {
+        private final byte[] salt;
+        private final int iterations;
+        private final byte[] hash;
+
+        public Hash(byte[] salt, int iterations, byte[] hash) {
+            this.salt = salt.clone();
+            this.iterations = iterations;
+            this.hash = hash.clone();
+        }
+
+        public byte[] getSalt() { return salt.clone(); }
+        public int getIterations() { return iterations; }
+        public byte[] getHash() { return hash.clone(); }
+    }
+
+    public static int getIterations() {
+        return iterations;
+    }
+
+    // Change the cost of new hashes, e.g. to raise it as hardware gets faster
+    public static void setIterations(int newIterations) {
+        if (newIterations < 1) {
+            throw new IllegalArgumentException("Iterations must be positive");
+        }
+        iterations = newIterations;
+    }
+
+    // Hash a password with a fresh random salt at the current cost
+    public static Hash hash(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        RANDOM.nextBytes(salt);
+        int cost = iterations;
+        return new Hash(salt, cost, derive(password, salt, cost));
+    }
+
+    // Check a password against a stored hash, comparing in constant time
+    public static boolean verify(String password, Hash stored) {
+        byte[] candidate = derive(password, stored.salt, stored.iterations);
+        return MessageDigest.isEqual(candidate, stored.hash);
+    }
+
+    // Run PBKDF2 over the password characters, clearing the copy afterwards
+    private static byte[] derive(String password, byte[] salt, int cost) {
+        char[] chars = (password == null ? "" : password).toCharArray();
+        PBEKeySpec spec = new PBEKeySpec(chars, salt, cost, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " is not available", e);
+        } finally {
+            spec.clearPassword();
+            Arrays.fill(chars, '\0');
+        }
+    }
+}
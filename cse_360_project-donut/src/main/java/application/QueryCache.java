@@ -0,0 +1,147 @@
+package application;
+
+import java.util.*;
+
+// Least-recently-used cache of search matches and group listing results, bounded by the number of article IDs it
+// holds. Each entry is tagged with the search tokens or groups it depends on, so a change to an article only drops
+// the entries whose tokens or groups the article has (before or after the change). Search entries hold unranked
+// matches, since BM25 scores also depend on every other article.
+public class QueryCache {
+
+    public static final int DEFAULT_CAPACITY = 1_000_000; // Article IDs held across all entries, about 40 MB
+
+    private final int capacity;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true); // In access order
+    private final Map<String, Set<String>> keysByTag = new HashMap<>(); // Tag -> keys of the entries depending on it
+    private long weight = 0; // Article IDs held
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+    private long invalidations = 0;
+
+    // Cached value with its weight and the tags it depends on
+    private static class Entry {
+        final Object value;
+        final int weight;
+        final String[] tags;
+
+        Entry(Object value, int weight, String[] tags) {
+            this.value = value;
+            this.weight = weight;
+            this.tags = tags;
+        }
+    }
+
+    public QueryCache(int capacity) {
+        this.capacity = capacity;
+    }
+
+    // Tag of the entries depending on a search token
+    static String tokenTag(String token) {
+        return "t:" + token;
+    }
+
+    // Tag of the entries depending on a group
+    static String groupTag(String group) {
+        return "g:" + GroupIndex.normalize(group);
+    }
+
+    // Cached value for a key, or null on a miss; each key is only ever used for one type of value
+    @SuppressWarnings("unchecked")
+    public synchronized <V> V get(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return (V) entry.value;
+    }
+
+    // Cache a result under a key; returns the cached, read-only result
+    public List<Long> put(String key, List<Long> ids, Collection<String> tags) {
+        List<Long> cached = Collections.unmodifiableList(ids);
+        put(key, cached, ids.size(), tags);
+        return cached;
+    }
+
+    // Cache a value holding as much as weight article IDs, evicting the least recently used entries to make room.
+    // Values weighing more than a tenth of the capacity are not cached.
+    public synchronized void put(String key, Object value, int valueWeight, Collection<String> tags) {
+        if (valueWeight > capacity / 10) {
+            return;
+        }
+        removeEntry(key);
+        Entry entry = new Entry(value, valueWeight + 1, tags.toArray(new String[0])); // An empty result still takes an entry
+        entries.put(key, entry);
+        for (String tag : entry.tags) {
+            keysByTag.computeIfAbsent(tag, t -> new HashSet<>()).add(key);
+        }
+        weight += entry.weight;
+        Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+        while (weight > capacity && eldest.hasNext()) {
+            Map.Entry<String, Entry> evicted = eldest.next();
+            eldest.remove();
+            forget(evicted.getKey(), evicted.getValue());
+            evictions++;
+        }
+    }
+
+    // Drop the entries depending on any of the tags
+    public synchronized void invalidate(Collection<String> tags) {
+        for (String tag : tags) {
+            Set<String> keys = keysByTag.get(tag);
+            if (keys == null) {
+                continue;
+            }
+            for (String key : keys.toArray(new String[0])) {
+                if (removeEntry(key)) {
+                    invalidations++;
+                }
+            }
+        }
+    }
+
+    // Drop every entry
+    public synchronized void clear() {
+        invalidations += entries.size();
+        entries.clear();
+        keysByTag.clear();
+        weight = 0;
+    }
+
+    public synchronized long getHits() { return hits; }
+    public synchronized long getMisses() { return misses; }
+    public synchronized long getEvictions() { return evictions; }
+    public synchronized long getInvalidations() { return invalidations; }
+    public synchronized int size() { return entries.size(); }
+    public synchronized long getWeight() { return weight; }
+
+    // Fraction of lookups answered from the cache
+    public synchronized double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0.0 : (double) hits / lookups;
+    }
+
+    // Helper to remove an entry and its tags; returns false if it was not cached
+    private boolean removeEntry(String key) {
+        Entry entry = entries.remove(key);
+        if (entry == null) {
+            return false;
+        }
+        forget(key, entry);
+        return true;
+    }
+
+    // Helper to release what a removed entry held
+    private void forget(String key, Entry entry) {
+        weight -= entry.weight;
+        for (String tag : entry.tags) {
+            Set<String> keys = keysByTag.get(tag);
+            keys.remove(key);
+            if (keys.isEmpty()) {
+                keysByTag.remove(tag);
+            }
+        }
+    }
+}
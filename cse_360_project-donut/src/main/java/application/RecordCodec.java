@@ -0,0 +1,164 @@
+package application;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+// Binary encoding of strings, string lists and help articles shared by the backup format and the write-ahead log
+public class RecordCodec {
+
+    private RecordCodec() {} // Static helpers only
+
+    // Number of bytes a string takes when encoded with putString
+    public static int sizeOf(String value) {
+        return 4 + (value == null ? 0 : utf8Length(value));
+    }
+
+    // Number of bytes a list takes when encoded with putStringList
+    public static int sizeOf(List<String> values) {
+        int size = 4;
+        if (values != null) {
+            for (String value : values) {
+                size += sizeOf(value);
+            }
+        }
+        return size;
+    }
+
+    // Number of bytes a byte array takes when encoded with putBytes
+    public static int sizeOf(byte[] value) {
+        return 4 + value.length;
+    }
+
+    // Write a length-prefixed byte array
+    public static void putBytes(ByteBuffer buffer, byte[] value) {
+        buffer.putInt(value.length);
+        buffer.put(value);
+    }
+
+    // Read a byte array written by putBytes
+    public static byte[] getBytes(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        byte[] value = new byte[length];
+        buffer.get(value);
+        return value;
+    }
+
+    // Write a length-prefixed UTF-8 string; a length of -1 marks null
+    public static void putString(ByteBuffer buffer, String value) {
+        if (value == null) {
+            buffer.putInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+
+    // Read a string written by putString
+    public static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    // Write a count-prefixed list of strings; a count of -1 marks null
+    public static void putStringList(ByteBuffer buffer, List<String> values) {
+        if (values == null) {
+            buffer.putInt(-1);
+            return;
+        }
+        buffer.putInt(values.size());
+        for (String value : values) {
+            putString(buffer, value);
+        }
+    }
+
+    // Read a list written by putStringList
+    public static List<String> getStringList(ByteBuffer buffer) {
+        int count = buffer.getInt();
+        if (count < 0) {
+            return null;
+        }
+        List<String> values = new ArrayList<>(Math.min(count, buffer.remaining() / 4));
+        for (int i = 0; i < count; i++) {
+            values.add(getString(buffer));
+        }
+        return values;
+    }
+
+    // Encode every field of a help article, reading each field only once so the length always matches
+    // the bytes even if the article is updated while it is being encoded
+    public static byte[] encodeArticle(User.HelpArticle article) {
+        long id = article.getId();
+        String title = article.getTitle();
+        String description = article.getDescription();
+        List<String> keywords = copyOf(article.getKeywords());
+        String body = article.getBody();
+        List<String> links = copyOf(article.getLinks());
+        List<String> groups = copyOf(article.getGroups());
+        String level = article.getLevel();
+        ByteBuffer buffer = ByteBuffer.allocate(8 + sizeOf(title) + sizeOf(description) + sizeOf(keywords)
+                + sizeOf(body) + sizeOf(links) + sizeOf(groups) + sizeOf(level));
+        buffer.putLong(id);
+        putString(buffer, title);
+        putString(buffer, description);
+        putStringList(buffer, keywords);
+        putString(buffer, body);
+        putStringList(buffer, links);
+        putStringList(buffer, groups);
+        putString(buffer, level);
+        return buffer.array();
+    }
+
+    // Read a help article written by encodeArticle
+    public static User.HelpArticle getArticle(ByteBuffer buffer) {
+        long id = buffer.getLong();
+        String title = getString(buffer);
+        String description = getString(buffer);
+        List<String> keywords = getStringList(buffer);
+        String body = getString(buffer);
+        List<String> links = getStringList(buffer);
+        List<String> groups = getStringList(buffer);
+        String level = getString(buffer);
+        return new User.HelpArticle(id, title, description, keywords, body, links, groups, level);
+    }
+
+    // Helper to take a private copy of a list that may be replaced or changed while it is encoded
+    private static List<String> copyOf(List<String> values) {
+        return values == null ? null : new ArrayList<>(values);
+    }
+
+    // UTF-8 length of a string without allocating the encoded bytes
+    private static int utf8Length(String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                length += 1; // Unpaired surrogates are encoded as '?'
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+}
@@ -0,0 +1,37 @@
+package application;
+
+// Counts of what a restore did with each article it read
+public class RestoreResult {
+
+    private int added = 0; // Articles whose ID was not stored yet
+    private int updated = 0; // Stored articles replaced by an incremental backup
+    private int removed = 0; // Articles removed by an incremental backup
+    private int skipped = 0; // Articles already stored with the same content
+    private int conflicted = 0; // Articles already stored under the same ID with different content; the stored copy is kept
+    private boolean cancelled = false; // Set when the restore was cancelled part way through
+
+    public int getAdded() { return added; }
+    public int getUpdated() { return updated; }
+    public int getRemoved() { return removed; }
+    public int getSkipped() { return skipped; }
+    public int getConflicted() { return conflicted; }
+    public boolean isCancelled() { return cancelled; }
+
+    // Number of restored records handled so far
+    public long getProcessed() {
+        return (long) added + updated + removed + skipped + conflicted;
+    }
+
+    void countAdded() { added++; }
+    void countUpdated() { updated++; }
+    void countRemoved() { removed++; }
+    void countSkipped() { skipped++; }
+    void countConflicted() { conflicted++; }
+    void markCancelled() { cancelled = true; }
+
+    @Override
+    public String toString() {
+        return added + " added, " + updated + " updated, " + removed + " removed, "
+                + skipped + " skipped, " + conflicted + " conflicted";
+    }
+}
@@ -0,0 +1,417 @@
+package application;
+
+import java.util.*;
+import java.util.function.LongPredicate;
+
+// Inverted index from lower-cased tokens of help article titles, keywords, descriptions and bodies to article IDs,
+// ranking matches with BM25
+public class SearchIndex {
+
+    static final double K1 = 1.2; // BM25 term frequency saturation
+    static final double B = 0.75; // BM25 document length normalization
+    static final int TITLE_WEIGHT = 3; // A title occurrence counts as this many body occurrences
+    static final int KEYWORD_WEIGHT = 2; // A keyword occurrence counts as this many body occurrences
+
+    private Map<String, Postings> postings = new HashMap<>(); // Token -> articles containing it
+    private Map<Long, Document> documents = new HashMap<>(); // Article ID -> what it was indexed under
+    private int nextGeneration = 0; // Tells the postings of a re-indexed article apart from its old ones
+    private long totalLength = 0; // Sum of the indexed articles' lengths, for the average length
+
+    // Articles containing one token, in indexing order. Removing an article only marks its postings stale;
+    // the list is compacted once more than half of it is stale.
+    private static class Postings {
+        long[] ids = new long[2];
+        int[] frequencies = new int[2]; // Weighted occurrences of the token in the article
+        int[] generations = new int[2]; // Generation of the article when the posting was added
+        int size = 0;
+        int stale = 0;
+        int documentFrequency = 0; // Number of live postings
+
+        void add(long id, int frequency, int generation) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+                generations = Arrays.copyOf(generations, size * 2);
+            }
+            ids[size] = id;
+            frequencies[size] = frequency;
+            generations[size] = generation;
+            size++;
+            documentFrequency++;
+        }
+    }
+
+    // Articles containing every token of a query, with what BM25 needs of each that only changes when the
+    // article itself does: its length and the token frequencies. The corpus-wide statistics (article count,
+    // average length, document frequencies) are read when the matches are ranked, so cached matches rank as
+    // a fresh search would.
+    public static class Matches {
+        private final String[] tokens;
+        private final long[] ids;
+        private final int[] lengths;
+        private final int[] frequencies; // Frequency of token t in match i at i * tokens.length + t
+
+        private Matches(String[] tokens, long[] ids, int[] lengths, int[] frequencies) {
+            this.tokens = tokens;
+            this.ids = ids;
+            this.lengths = lengths;
+            this.frequencies = frequencies;
+        }
+
+        public int size() {
+            return ids.length;
+        }
+
+        // Numbers held, counted like article IDs when sizing a cache
+        public int weight() {
+            return ids.length * (2 + tokens.length) / 2;
+        }
+    }
+
+    // What an article was indexed under
+    private static class Document {
+        final int generation;
+        final int length; // Weighted number of tokens across all fields
+        final String[] tokens; // Distinct tokens, to find its postings on removal
+
+        Document(int generation, int length, String[] tokens) {
+            this.generation = generation;
+            this.length = length;
+            this.tokens = tokens;
+        }
+    }
+
+    // Split text into lower-case tokens on anything that is not a letter or digit
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    // Tokens of an article's title, keywords, description and body
+    public static Set<String> tokensOf(User.HelpArticle article) {
+        return termFrequencies(article).keySet();
+    }
+
+    // Check a single article against a query without consulting the index
+    public static boolean matches(User.HelpArticle article, String query) {
+        List<String> queryTokens = tokenize(query);
+        return !queryTokens.isEmpty() && tokensOf(article).containsAll(queryTokens);
+    }
+
+    // Weighted occurrences of each token of an article
+    private static Map<String, Integer> termFrequencies(User.HelpArticle article) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        count(frequencies, article.getTitle(), TITLE_WEIGHT);
+        if (article.getKeywords() != null) {
+            for (String keyword : article.getKeywords()) {
+                count(frequencies, keyword, KEYWORD_WEIGHT);
+            }
+        }
+        count(frequencies, article.getDescription(), 1);
+        count(frequencies, article.getBody(), 1);
+        return frequencies;
+    }
+
+    // Helper to count the tokens of one field
+    private static void count(Map<String, Integer> frequencies, String text, int weight) {
+        for (String token : tokenize(text)) {
+            frequencies.merge(token, weight, Integer::sum);
+        }
+    }
+
+    // Index an article under the tokens of its text
+    public void add(User.HelpArticle article) {
+        remove(article.getId()); // Re-adding an article replaces its old entries
+        Map<String, Integer> frequencies = termFrequencies(article);
+        int generation = addDocument(article.getId(), frequencies);
+        for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+            postings.computeIfAbsent(entry.getKey(), t -> new Postings()).add(article.getId(), entry.getValue(), generation);
+        }
+    }
+
+    // Index a batch of articles not indexed yet, touching each token's postings once
+    public void addAll(Collection<User.HelpArticle> articles) {
+        Map<String, List<long[]>> batchPostings = new HashMap<>(); // Token -> {article ID, frequency, generation}
+        for (User.HelpArticle article : articles) {
+            Map<String, Integer> frequencies = termFrequencies(article);
+            int generation = addDocument(article.getId(), frequencies);
+            for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+                batchPostings.computeIfAbsent(entry.getKey(), t -> new ArrayList<>())
+                        .add(new long[] {article.getId(), entry.getValue(), generation});
+            }
+        }
+        for (Map.Entry<String, List<long[]>> entry : batchPostings.entrySet()) {
+            Postings list = postings.computeIfAbsent(entry.getKey(), t -> new Postings());
+            for (long[] posting : entry.getValue()) {
+                list.add(posting[0], (int) posting[1], (int) posting[2]);
+            }
+        }
+    }
+
+    // Remove an article from the index, marking its postings stale
+    public void remove(long id) {
+        Document document = documents.remove(id);
+        if (document == null) {
+            return;
+        }
+        totalLength -= document.length;
+        for (String token : document.tokens) {
+            Postings list = postings.get(token);
+            list.documentFrequency--;
+            list.stale++;
+            if (list.documentFrequency == 0) {
+                postings.remove(token);
+            } else if (list.stale > list.size / 2) {
+                compact(list);
+            }
+        }
+    }
+
+    // Check whether any article contains a token
+    public boolean hasToken(String token) {
+        return postings.containsKey(token);
+    }
+
+    // Find the IDs of articles containing every token of the query, most relevant first
+    public List<Long> search(String query) {
+        return search(query, Integer.MAX_VALUE, id -> true);
+    }
+
+    // Find the IDs of the limit most relevant articles that contain every token of the query and pass the filter,
+    // most relevant first; ties go to the lower ID
+    public List<Long> search(String query, int limit, LongPredicate filter) {
+        List<Postings> lists = new ArrayList<>();
+        for (String token : new HashSet<>(tokenize(query))) {
+            Postings list = postings.get(token);
+            if (list == null) {
+                return new ArrayList<>(); // A token with no postings means no article matches
+            }
+            lists.add(list);
+        }
+        if (lists.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+        // Only articles in the rarest token's postings can match, so score term by term starting there
+        lists.sort(Comparator.comparingInt(list -> list.documentFrequency));
+        double averageLength = (double) totalLength / documents.size();
+        Map<Long, Candidate> candidates = new HashMap<>();
+        for (int t = 0; t < lists.size(); t++) {
+            Postings list = lists.get(t);
+            double idf = idf(list.documentFrequency);
+            for (int i = 0; i < list.size; i++) {
+                Candidate candidate;
+                if (t == 0) {
+                    if (!isLive(list, i) || !filter.test(list.ids[i])) {
+                        continue;
+                    }
+                    candidate = new Candidate(list.ids[i], documents.get(list.ids[i]).length);
+                    candidates.put(candidate.id, candidate);
+                } else {
+                    candidate = candidates.get(list.ids[i]);
+                    if (candidate == null || candidate.matched != t || !isLive(list, i)) {
+                        continue; // Not a candidate, or already missing an earlier token
+                    }
+                }
+                candidate.score += score(idf, list.frequencies[i], candidate.length, averageLength);
+                candidate.matched++;
+            }
+        }
+        List<Candidate> matched = new ArrayList<>(candidates.size());
+        for (Candidate candidate : candidates.values()) {
+            if (candidate.matched == lists.size()) {
+                matched.add(candidate);
+            }
+        }
+        return best(matched, limit);
+    }
+
+    // Find the articles containing every token of the query without ranking them
+    public Matches match(String query) {
+        String[] tokens = new HashSet<>(tokenize(query)).toArray(new String[0]);
+        List<Postings> lists = new ArrayList<>();
+        for (String token : tokens) {
+            Postings list = postings.get(token);
+            if (list == null) {
+                return new Matches(tokens, new long[0], new int[0], new int[0]);
+            }
+            lists.add(list);
+        }
+        if (lists.isEmpty()) {
+            return new Matches(tokens, new long[0], new int[0], new int[0]);
+        }
+        // Only articles in the rarest token's postings can match
+        int rarest = 0;
+        for (int t = 1; t < lists.size(); t++) {
+            if (lists.get(t).documentFrequency < lists.get(rarest).documentFrequency) {
+                rarest = t;
+            }
+        }
+        Map<Long, int[]> candidates = new HashMap<>(); // Article ID -> frequency of each token, 0 while not found
+        Postings first = lists.get(rarest);
+        for (int i = 0; i < first.size; i++) {
+            if (isLive(first, i)) {
+                int[] frequencies = new int[tokens.length];
+                frequencies[rarest] = first.frequencies[i];
+                candidates.put(first.ids[i], frequencies);
+            }
+        }
+        for (int t = 0; t < lists.size(); t++) {
+            if (t == rarest) {
+                continue;
+            }
+            Postings list = lists.get(t);
+            for (int i = 0; i < list.size; i++) {
+                int[] frequencies = candidates.get(list.ids[i]);
+                if (frequencies != null && isLive(list, i)) {
+                    frequencies[t] = list.frequencies[i];
+                }
+            }
+        }
+        List<Long> ids = new ArrayList<>();
+        for (Map.Entry<Long, int[]> entry : candidates.entrySet()) {
+            boolean all = true;
+            for (int frequency : entry.getValue()) {
+                all &= frequency > 0;
+            }
+            if (all) {
+                ids.add(entry.getKey());
+            }
+        }
+        long[] matchIds = new long[ids.size()];
+        int[] lengths = new int[ids.size()];
+        int[] frequencies = new int[ids.size() * tokens.length];
+        for (int i = 0; i < matchIds.length; i++) {
+            matchIds[i] = ids.get(i);
+            lengths[i] = documents.get(matchIds[i]).length;
+            System.arraycopy(candidates.get(matchIds[i]), 0, frequencies, i * tokens.length, tokens.length);
+        }
+        return new Matches(tokens, matchIds, lengths, frequencies);
+    }
+
+    // Rank matches found earlier by BM25 over the articles indexed now, as search would; every match must still
+    // be indexed as it was when matched
+    public List<Long> rank(Matches matches, int limit, LongPredicate filter) {
+        if (matches.size() == 0 || limit <= 0) {
+            return new ArrayList<>();
+        }
+        int tokenCount = matches.tokens.length;
+        int[] documentFrequencies = new int[tokenCount];
+        double[] idfs = new double[tokenCount];
+        List<Integer> order = new ArrayList<>(tokenCount); // Rarest token first, adding scores up as search does
+        for (int t = 0; t < tokenCount; t++) {
+            documentFrequencies[t] = postings.get(matches.tokens[t]).documentFrequency;
+            idfs[t] = idf(documentFrequencies[t]);
+            order.add(t);
+        }
+        order.sort(Comparator.comparingInt(t -> documentFrequencies[t]));
+        double averageLength = (double) totalLength / documents.size();
+        List<Candidate> matched = new ArrayList<>(matches.size());
+        for (int i = 0; i < matches.size(); i++) {
+            if (!filter.test(matches.ids[i])) {
+                continue;
+            }
+            Candidate candidate = new Candidate(matches.ids[i], matches.lengths[i]);
+            for (int t : order) {
+                candidate.score += score(idfs[t], matches.frequencies[i * tokenCount + t], candidate.length, averageLength);
+            }
+            matched.add(candidate);
+        }
+        return best(matched, limit);
+    }
+
+    // Remove every article from the index
+    public void clear() {
+        postings.clear();
+        documents.clear();
+        totalLength = 0;
+    }
+
+    // Article being scored by a search
+    private static class Candidate {
+        final long id;
+        final int length;
+        double score = 0;
+        int matched = 0; // Number of query tokens found so far
+
+        Candidate(long id, int length) {
+            this.id = id;
+            this.length = length;
+        }
+    }
+
+    // Helper to compute a token's inverse document frequency over the indexed articles
+    private double idf(int documentFrequency) {
+        return Math.log(1 + (documents.size() - documentFrequency + 0.5) / (documentFrequency + 0.5));
+    }
+
+    // Helper to compute the BM25 contribution of one token to an article's score
+    private static double score(double idf, double frequency, int length, double averageLength) {
+        return idf * frequency * (K1 + 1) / (frequency + K1 * (1 - B + B * length / averageLength));
+    }
+
+    // Helper to keep the limit most relevant candidates in a min-heap, so the worst of them is the one to replace;
+    // returns their IDs, most relevant first
+    private static List<Long> best(List<Candidate> candidates, int limit) {
+        PriorityQueue<Candidate> best = new PriorityQueue<>(Math.min(limit, candidates.size() + 1), SearchIndex::compareRelevance);
+        for (Candidate candidate : candidates) {
+            if (best.size() < limit) {
+                best.add(candidate);
+            } else if (compareRelevance(candidate, best.peek()) > 0) {
+                best.poll();
+                best.add(candidate);
+            }
+        }
+        Long[] results = new Long[best.size()];
+        for (int i = results.length - 1; i >= 0; i--) {
+            results[i] = best.poll().id;
+        }
+        return new ArrayList<>(Arrays.asList(results));
+    }
+
+    // Helper to order candidates from least to most relevant
+    private static int compareRelevance(Candidate a, Candidate b) {
+        int byScore = Double.compare(a.score, b.score);
+        return byScore != 0 ? byScore : Long.compare(b.id, a.id);
+    }
+
+    // Helper to record an article being indexed; returns its generation
+    private int addDocument(long id, Map<String, Integer> frequencies) {
+        int length = 0;
+        for (int frequency : frequencies.values()) {
+            length += frequency;
+        }
+        Document document = new Document(nextGeneration++, length, frequencies.keySet().toArray(new String[0]));
+        documents.put(id, document);
+        totalLength += length;
+        return document.generation;
+    }
+
+    // Helper to check whether a posting belongs to the article as it is currently indexed
+    private boolean isLive(Postings list, int index) {
+        Document document = documents.get(list.ids[index]);
+        return document != null && document.generation == list.generations[index];
+    }
+
+    // Helper to drop the stale postings of a list
+    private void compact(Postings list) {
+        int kept = 0;
+        for (int i = 0; i < list.size; i++) {
+            if (isLive(list, i)) {
+                list.ids[kept] = list.ids[i];
+                list.frequencies[kept] = list.frequencies[i];
+                list.generations[kept] = list.generations[i];
+                kept++;
+            }
+        }
+        list.size = kept;
+        list.stale = 0;
+    }
+}
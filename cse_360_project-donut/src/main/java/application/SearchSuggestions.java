@@ -0,0 +1,87 @@
+package application;
+
+import javafx.animation.PauseTransition;
+import javafx.geometry.Side;
+import javafx.scene.control.ContextMenu;
+import javafx.scene.control.MenuItem;
+import javafx.scene.control.TextField;
+import javafx.util.Duration;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+// Drop-down of title and keyword suggestions under a search field, looked up once typing pauses
+public class SearchSuggestions {
+
+    static final Duration DEBOUNCE = Duration.millis(200); // Pause in typing before suggestions are looked up
+    static final int LIMIT = 8; // Suggestions shown at a time
+
+    private final TextField field;
+    private final Consumer<String> onChoose; // Runs the search for a chosen suggestion
+    private final ContextMenu menu = new ContextMenu();
+    private final PauseTransition debounce = new PauseTransition(DEBOUNCE);
+    private boolean choosing = false; // Set while a chosen suggestion is put into the field
+    private User user; // User whose visible articles are suggested
+
+    public SearchSuggestions(TextField field, Consumer<String> onChoose) {
+        this.field = field;
+        this.onChoose = onChoose;
+        debounce.setOnFinished(e -> refresh());
+        // Each keystroke restarts the pause, so only the text typed last is looked up
+        field.textProperty().addListener((observable, oldText, newText) -> {
+            if (!choosing) {
+                debounce.playFromStart();
+            }
+        });
+        field.focusedProperty().addListener((observable, wasFocused, focused) -> {
+            if (!focused) {
+                hide();
+            }
+        });
+    }
+
+    // Suggest from another user's articles, e.g. after a new login
+    public void setUser(User user) {
+        this.user = user;
+        hide();
+    }
+
+    // Stop any pending lookup and close the drop-down
+    public void hide() {
+        debounce.stop();
+        menu.hide();
+    }
+
+    // Helper to look up suggestions for the field's text and show them
+    private void refresh() {
+        String text = field.getText();
+        if (user == null || text == null || text.isBlank() || !field.isFocused()) {
+            menu.hide();
+            return;
+        }
+        List<String> suggestions = user.suggestHelpArticles(text, LIMIT);
+        if (suggestions.isEmpty()) {
+            menu.hide();
+            return;
+        }
+        menu.getItems().clear();
+        for (String suggestion : suggestions) {
+            MenuItem item = new MenuItem(suggestion);
+            item.setOnAction(e -> choose(suggestion));
+            menu.getItems().add(item);
+        }
+        if (!menu.isShowing()) {
+            menu.show(field, Side.BOTTOM, 0, 0);
+        }
+    }
+
+    // Helper to put a chosen suggestion into the field and search for it
+    private void choose(String suggestion) {
+        choosing = true;
+        field.setText(suggestion);
+        field.positionCaret(suggestion.length());
+        choosing = false;
+        hide();
+        onChoose.accept(suggestion);
+    }
+}
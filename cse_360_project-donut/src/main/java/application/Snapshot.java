@@ -0,0 +1,32 @@
+package application;
+
+import java.util.Collection;
+import java.util.List;
+
+// Immutable view of a collection as of one version. Readers share the same snapshot until a writer changes the
+// collection, so taking one does not copy anything; the next snapshot is built once, by the first reader after
+// the change. The list is read-only and throws if it is modified.
+public class Snapshot<T> {
+
+    private final long version;
+    private final List<T> items;
+
+    Snapshot(long version, Collection<T> items) {
+        this.version = version;
+        this.items = List.copyOf(items);
+    }
+
+    // Number of changes made to the collection before this snapshot was taken
+    public long getVersion() {
+        return version;
+    }
+
+    // The items, in the collection's order
+    public List<T> getItems() {
+        return items;
+    }
+
+    public int size() {
+        return items.size();
+    }
+}
@@ -0,0 +1,210 @@
+package application;
+
+import java.util.*;
+import java.util.function.LongPredicate;
+
+// Prefix trie over lower-cased help article titles and keywords, for suggestions while a search is typed
+public class SuggestionIndex {
+
+    public static final int DEFAULT_MAX_VISITS = 20_000;
+
+    // Trie nodes and article checks one suggestion call may spend, so a short prefix under which the user can see
+    // few articles does not walk the whole subtree on every keystroke; fewer suggestions are returned instead
+    private static volatile int maxVisits = Integer.getInteger("donut.suggest.visits", DEFAULT_MAX_VISITS);
+
+    private final Node root = new Node();
+    private Map<Long, String[]> articlePhrases = new HashMap<>(); // Article ID -> phrases it was indexed under
+
+    // One character of a phrase; children are kept sorted so suggestions come out in alphabetical order
+    private static class Node {
+        char[] keys = new char[0];
+        Node[] children = new Node[0];
+        String phrase; // Phrase ending here as first written, or null if no phrase ends here
+        Set<Long> ids; // Articles with this phrase as their title or a keyword
+
+        Node child(char key) {
+            int index = Arrays.binarySearch(keys, key);
+            return index < 0 ? null : children[index];
+        }
+
+        Node addChild(char key) {
+            int index = Arrays.binarySearch(keys, key);
+            if (index >= 0) {
+                return children[index];
+            }
+            index = -index - 1;
+            char[] newKeys = new char[keys.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, index);
+            System.arraycopy(children, 0, newChildren, 0, index);
+            System.arraycopy(keys, index, newKeys, index + 1, keys.length - index);
+            System.arraycopy(children, index, newChildren, index + 1, children.length - index);
+            newKeys[index] = key;
+            newChildren[index] = new Node();
+            keys = newKeys;
+            children = newChildren;
+            return newChildren[index];
+        }
+
+        void removeChild(char key) {
+            int index = Arrays.binarySearch(keys, key);
+            char[] newKeys = new char[keys.length - 1];
+            Node[] newChildren = new Node[children.length - 1];
+            System.arraycopy(keys, 0, newKeys, 0, index);
+            System.arraycopy(children, 0, newChildren, 0, index);
+            System.arraycopy(keys, index + 1, newKeys, index, keys.length - index - 1);
+            System.arraycopy(children, index + 1, newChildren, index, children.length - index - 1);
+            keys = newKeys;
+            children = newChildren;
+        }
+
+        boolean isEmpty() {
+            return keys.length == 0 && phrase == null;
+        }
+    }
+
+    public static int getMaxVisits() {
+        return maxVisits;
+    }
+
+    public static void setMaxVisits(int visits) {
+        if (visits <= 0) {
+            throw new IllegalArgumentException("Visit limit must be positive");
+        }
+        maxVisits = visits;
+    }
+
+    // Lower-case and collapse the whitespace of a phrase, or null if nothing is left
+    static String normalize(String text) {
+        if (text == null) {
+            return null;
+        }
+        String normalized = text.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+        return normalized.isEmpty() ? null : normalized;
+    }
+
+    // Index an article under its title and keywords
+    public void add(User.HelpArticle article) {
+        remove(article.getId()); // Re-adding an article replaces its old phrases
+        Set<String> phrases = new LinkedHashSet<>();
+        addPhrase(phrases, article.getTitle());
+        if (article.getKeywords() != null) {
+            for (String keyword : article.getKeywords()) {
+                addPhrase(phrases, keyword);
+            }
+        }
+        for (String phrase : phrases) {
+            insert(phrase, article.getId());
+        }
+        articlePhrases.put(article.getId(), phrases.toArray(new String[0]));
+    }
+
+    // Remove an article's phrases, dropping the ones no other article uses
+    public void remove(long id) {
+        String[] phrases = articlePhrases.remove(id);
+        if (phrases == null) {
+            return;
+        }
+        for (String phrase : phrases) {
+            delete(root, normalize(phrase), 0, id);
+        }
+    }
+
+    // Phrases starting with the prefix that belong to an article passing the filter, at most limit of them,
+    // in alphabetical order with shorter phrases first
+    public List<String> suggest(String prefix, int limit, LongPredicate filter) {
+        List<String> suggestions = new ArrayList<>();
+        String normalized = normalize(prefix);
+        if (normalized == null || limit <= 0) {
+            return suggestions;
+        }
+        if (prefix.length() > 0 && Character.isWhitespace(prefix.charAt(prefix.length() - 1))) {
+            normalized += " "; // A typed space narrows to phrases with another word
+        }
+        Node node = root;
+        for (int i = 0; i < normalized.length() && node != null; i++) {
+            node = node.child(normalized.charAt(i));
+        }
+        if (node != null) {
+            collect(node, limit, filter, suggestions, maxVisits);
+        }
+        return suggestions;
+    }
+
+    // Remove every phrase
+    public void clear() {
+        root.keys = new char[0];
+        root.children = new Node[0];
+        articlePhrases.clear();
+    }
+
+    // Helper to add a phrase unless an equal one (ignoring case) was added already
+    private static void addPhrase(Set<String> phrases, String text) {
+        String normalized = normalize(text);
+        if (normalized == null) {
+            return;
+        }
+        for (String phrase : phrases) {
+            if (normalize(phrase).equals(normalized)) {
+                return;
+            }
+        }
+        phrases.add(text.trim().replaceAll("\\s+", " "));
+    }
+
+    // Helper to insert a phrase for an article
+    private void insert(String phrase, long id) {
+        String normalized = normalize(phrase);
+        Node node = root;
+        for (int i = 0; i < normalized.length(); i++) {
+            node = node.addChild(normalized.charAt(i));
+        }
+        if (node.phrase == null) {
+            node.phrase = phrase;
+            node.ids = new LinkedHashSet<>();
+        }
+        node.ids.add(id);
+    }
+
+    // Helper to remove an article from a phrase, pruning nodes left empty on the way back up
+    private static void delete(Node node, String phrase, int depth, long id) {
+        if (depth == phrase.length()) {
+            if (node.ids != null) {
+                node.ids.remove(id);
+                if (node.ids.isEmpty()) {
+                    node.phrase = null;
+                    node.ids = null;
+                }
+            }
+            return;
+        }
+        Node child = node.child(phrase.charAt(depth));
+        if (child == null) {
+            return;
+        }
+        delete(child, phrase, depth + 1, id);
+        if (child.isEmpty()) {
+            node.removeChild(phrase.charAt(depth));
+        }
+    }
+
+    // Helper to collect phrases depth-first until limit are found or the visits run out; returns the visits left
+    private static int collect(Node node, int limit, LongPredicate filter, List<String> suggestions, int visits) {
+        visits--;
+        if (node.phrase != null) {
+            for (Long id : node.ids) {
+                if (visits-- <= 0) {
+                    return 0;
+                }
+                if (filter.test(id)) {
+                    suggestions.add(node.phrase);
+                    break;
+                }
+            }
+        }
+        for (int i = 0; i < node.children.length && suggestions.size() < limit && visits > 0; i++) {
+            visits = collect(node.children[i], limit, filter, suggestions, visits);
+        }
+        return visits;
+    }
+}
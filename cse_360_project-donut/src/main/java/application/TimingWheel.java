@@ -0,0 +1,177 @@
+package application;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Hierarchical timing wheel: runs tasks at a deadline, rounded up to the next tick. Scheduling and cancelling are
+// O(1) however many tasks are pending. Each level has 64 slots covering 64 times the span of the level below;
+// a task waits in the coarsest slot that fits its deadline and moves down a level each time the clock reaches
+// that slot, until it reaches the finest level and runs.
+public class TimingWheel implements AutoCloseable {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS; // Slots per level
+    private static final int LEVELS = 5; // 64^5 ticks; later deadlines wait in the top level and are re-placed
+
+    private final long tickMillis;
+    private final long startMillis; // Time of tick 0
+    private final Timeout[][] wheels = new Timeout[LEVELS][SLOTS]; // Sentinels of each slot's circular list
+    private long currentTick = 0; // Last tick processed, guarded by this
+    private int pending = 0; // Tasks scheduled and not yet run or cancelled, guarded by this
+    private Thread ticker;
+
+    // A scheduled task; cancelling it unlinks it from its slot
+    public class Timeout {
+        private final Runnable task;
+        private long deadlineTick;
+        private Timeout previous;
+        private Timeout next;
+
+        private Timeout(Runnable task, long deadlineTick) {
+            this.task = task;
+            this.deadlineTick = deadlineTick;
+        }
+
+        // Stop the task from running; returns false if it already ran or was cancelled
+        public boolean cancel() {
+            synchronized (TimingWheel.this) {
+                if (next == null) {
+                    return false;
+                }
+                unlink(this);
+                pending--;
+                return true;
+            }
+        }
+    }
+
+    // Create a wheel whose ticks are tickMillis long, counted from startMillis
+    public TimingWheel(long tickMillis, long startMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("Tick must be positive");
+        }
+        this.tickMillis = tickMillis;
+        this.startMillis = startMillis;
+        for (int level = 0; level < LEVELS; level++) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                Timeout sentinel = new Timeout(null, 0);
+                sentinel.previous = sentinel;
+                sentinel.next = sentinel;
+                wheels[level][slot] = sentinel;
+            }
+        }
+    }
+
+    // Run a task once the clock passes a deadline (in epoch milliseconds); deadlines already passed run on the next tick
+    public synchronized Timeout schedule(long deadlineMillis, Runnable task) {
+        long deadlineTick = Math.floorDiv(deadlineMillis - startMillis + tickMillis - 1, tickMillis); // Rounded up
+        Timeout timeout = new Timeout(task, Math.max(deadlineTick, currentTick + 1));
+        place(timeout);
+        pending++;
+        return timeout;
+    }
+
+    // Process every tick up to a time (in epoch milliseconds), running the tasks that are due outside the lock
+    public void advanceTo(long nowMillis) {
+        List<Runnable> due = new ArrayList<>();
+        synchronized (this) {
+            long targetTick = Math.floorDiv(nowMillis - startMillis, tickMillis);
+            while (currentTick < targetTick) {
+                currentTick++;
+                cascade();
+                Timeout sentinel = wheels[0][(int) (currentTick & (SLOTS - 1))];
+                while (sentinel.next != sentinel) {
+                    Timeout timeout = sentinel.next;
+                    unlink(timeout);
+                    pending--;
+                    due.add(timeout.task);
+                }
+            }
+        }
+        for (Runnable task : due) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                System.out.println("Error running a scheduled task: " + e.getMessage());
+            }
+        }
+    }
+
+    // Number of tasks waiting to run
+    public synchronized int size() {
+        return pending;
+    }
+
+    // Advance the wheel with the wall clock on a daemon thread until closed
+    public synchronized void start(String threadName) {
+        if (ticker != null) {
+            return;
+        }
+        ticker = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                advanceTo(System.currentTimeMillis());
+                try {
+                    Thread.sleep(tickMillis);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }, threadName);
+        ticker.setDaemon(true);
+        ticker.start();
+    }
+
+    // Stop the ticker thread; pending tasks stay scheduled but no longer run by themselves
+    @Override
+    public void close() {
+        Thread thread;
+        synchronized (this) {
+            thread = ticker;
+            ticker = null;
+        }
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    // Helper to move the tasks of the coarser slots the clock just reached down towards the finest level
+    private void cascade() {
+        for (int level = 1; level < LEVELS; level++) {
+            if ((currentTick & ((1L << (SLOT_BITS * level)) - 1)) != 0) {
+                return; // The levels below have not wrapped around
+            }
+            Timeout sentinel = wheels[level][(int) ((currentTick >>> (SLOT_BITS * level)) & (SLOTS - 1))];
+            while (sentinel.next != sentinel) {
+                Timeout timeout = sentinel.next;
+                unlink(timeout);
+                place(timeout);
+            }
+        }
+    }
+
+    // Helper to put a task in the coarsest slot that still tells its deadline apart from the current tick
+    private void place(Timeout timeout) {
+        long distance = timeout.deadlineTick - currentTick;
+        int level = 0;
+        while (level < LEVELS - 1 && distance >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+        long slotTick = timeout.deadlineTick;
+        if (distance >= 1L << (SLOT_BITS * LEVELS)) {
+            slotTick = currentTick + (1L << (SLOT_BITS * LEVELS)) - 1; // Too far out; re-placed when the slot is reached
+        }
+        Timeout sentinel = wheels[level][(int) ((slotTick >>> (SLOT_BITS * level)) & (SLOTS - 1))];
+        timeout.previous = sentinel.previous;
+        timeout.next = sentinel;
+        sentinel.previous.next = timeout;
+        sentinel.previous = timeout;
+    }
+
+    // Helper to remove a task from its slot
+    private static void unlink(Timeout timeout) {
+        timeout.previous.next = timeout.next;
+        timeout.next.previous = timeout.previous;
+        timeout.previous = null;
+        timeout.next = null;
+    }
+}
@@ -1,31 +1,42 @@
 package application;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class User {
 
     private String username;
-    private byte[] password; // Password stored as bytes
+    private volatile PasswordHasher.Hash password; // Salted password hash, never the password itself
     private String role;
     private String email;
     private String firstName;
     private String middleName;
     private String lastName;
     private String preferredName;
-    private boolean isOneTimePassword;
-    private LocalDateTime otpExpiry;
-    private boolean isAccountSetupComplete = false; // Flag for account setup completion
+    private volatile boolean isOneTimePassword;
+    private volatile LocalDateTime otpExpiry;
+    private volatile boolean otpExpired = false; // Set by Login once the one-time password expires
+    private TimingWheel.Timeout otpExpiryTimeout; // Pending expiry of the one-time password, guarded by this
+    private volatile boolean isAccountSetupComplete = false; // Flag for account setup completion
+    private long registrationSeq; // Position in Login's registration order
 
     private Map<String, String> topics = new HashMap<>(); // Map of topics and proficiency levels
 
-    private List<HelpArticle> helpArticles = new ArrayList<>(); // List of help articles
+    private Set<Long> articleIds = ConcurrentHashMap.newKeySet(); // IDs of the help articles this user owns
+    private Set<Long> hiddenIds = ConcurrentHashMap.newKeySet(); // IDs of shared articles this user removed from their view
+    private ArticleRepository articleRepository = ArticleRepository.getInstance(); // Shared store holding the articles
+    private volatile Snapshot<HelpArticle> visibleArticles = new Snapshot<>(-1, Collections.emptyList()); // Visible articles as of a repository version
 
     // Constructor to create a new user
     public User(String username, String password, String role) {
         this.username = username;
-        this.password = password.getBytes();
+        this.password = PasswordHasher.hash(password);
         this.role = role;
         this.isOneTimePassword = false; // Default value
         this.otpExpiry = null; // No expiry by default
@@ -36,6 +47,13 @@ public class User {
         topics.put("Topic 3", "Intermediate");
     }
 
+    // Constructor for a user read back from storage, whose password is already hashed
+    User(String username, PasswordHasher.Hash password, String role) {
+        this.username = username;
+        this.password = password;
+        this.role = role;
+    }
+
     // Getters and Setters for user attributes
 
     public String getUsername() {
@@ -46,11 +64,21 @@ public class User {
         this.username = username;
     }
 
-    public byte[] getPassword() {
+    // Check a password against the stored hash
+    public boolean verifyPassword(String candidate) {
+        return PasswordHasher.verify(candidate, password);
+    }
+
+    // Replace the password, storing only its salted hash
+    public void setPassword(String password) {
+        this.password = PasswordHasher.hash(password);
+    }
+
+    public PasswordHasher.Hash getPasswordHash() {
         return password;
     }
 
-    public void setPassword(byte[] password) {
+    public void setPasswordHash(PasswordHasher.Hash password) {
         this.password = password;
     }
 
@@ -109,8 +137,10 @@ public class User {
         return isOneTimePassword;
     }
 
+    // Changing the one-time password or its expiry reschedules the expiry of a registered user
     public void setOneTimePassword(boolean isOneTimePassword) {
         this.isOneTimePassword = isOneTimePassword;
+        Login.getInstance().otpChanged(this);
     }
 
     public LocalDateTime getOtpExpiry() {
@@ -119,6 +149,24 @@ public class User {
 
     public void setOtpExpiry(LocalDateTime otpExpiry) {
         this.otpExpiry = otpExpiry;
+        Login.getInstance().otpChanged(this);
+    }
+
+    // Whether the one-time password has expired; kept up to date by Login, which schedules each expiry
+    public boolean isOtpExpired() {
+        return otpExpired;
+    }
+
+    void setOtpExpired(boolean otpExpired) {
+        this.otpExpired = otpExpired;
+    }
+
+    TimingWheel.Timeout getOtpExpiryTimeout() {
+        return otpExpiryTimeout;
+    }
+
+    void setOtpExpiryTimeout(TimingWheel.Timeout otpExpiryTimeout) {
+        this.otpExpiryTimeout = otpExpiryTimeout;
     }
 
     // Methods for account setup completion
@@ -131,6 +179,16 @@ public class User {
         this.isAccountSetupComplete = isAccountSetupComplete;
     }
 
+    // Methods for registration order, maintained by Login
+
+    long getRegistrationSeq() {
+        return registrationSeq;
+    }
+
+    void setRegistrationSeq(long registrationSeq) {
+        this.registrationSeq = registrationSeq;
+    }
+
     // Methods for topic proficiency
 
     public Map<String, String> getTopics() {
@@ -149,25 +207,38 @@ public class User {
     public static class HelpArticle implements Serializable {
         private static final long serialVersionUID = 1L;
 
+        // Serialized form of every version: plain strings and lists, with the body written out in full even when it is stored elsewhere
+        private static final ObjectStreamField[] serialPersistentFields = {
+                new ObjectStreamField("id", long.class),
+                new ObjectStreamField("title", String.class),
+                new ObjectStreamField("description", String.class),
+                new ObjectStreamField("keywords", List.class),
+                new ObjectStreamField("body", String.class),
+                new ObjectStreamField("links", List.class),
+                new ObjectStreamField("groups", List.class),
+                new ObjectStreamField("level", String.class)
+        };
+
         private long id; // Unique identifier
         private String title;
         private String description;
-        private List<String> keywords;
-        private String body;
+        private int[] keywordIds; // Keywords as Vocabulary IDs, or null
+        private volatile String body; // Body kept on the heap, or null while it lives in storedBody
+        private volatile ArticleBodyStore.Body storedBody; // Location of the body in a body store, decoded on each getBody
         private List<String> links;
-        private List<String> groups;
-        private String level;
+        private int[] groupIds; // Groups as Vocabulary IDs, or null
+        private int levelId; // Level as a Vocabulary ID, or -1 for none
 
         // Constructor to create a new help article
         public HelpArticle(long id, String title, String description, List<String> keywords, String body, List<String> links, List<String> groups, String level) {
             this.id = id;
             this.title = title;
             this.description = description;
-            this.keywords = keywords;
+            this.keywordIds = Vocabulary.getInstance().encode(keywords);
             this.body = body;
             this.links = links;
-            this.groups = groups;
-            this.level = level;
+            this.groupIds = Vocabulary.getInstance().encode(groups);
+            this.levelId = Vocabulary.getInstance().idOf(level);
         }
 
         // Getters and Setters for help article attributes
@@ -180,76 +251,257 @@ public class User {
         public String getDescription() { return description; }
         public void setDescription(String description) { this.description = description; }
 
-        public List<String> getKeywords() { return keywords; }
-        public void setKeywords(List<String> keywords) { this.keywords = keywords; }
+        // Keywords, groups and level are returned as read-only lists decoded from the shared vocabulary
+        public List<String> getKeywords() { return Vocabulary.getInstance().decode(keywordIds); }
+        public void setKeywords(List<String> keywords) { this.keywordIds = Vocabulary.getInstance().encode(keywords); }
+
+        public String getBody() {
+            String heapBody = body;
+            if (heapBody != null) {
+                return heapBody;
+            }
+            ArticleBodyStore.Body stored = storedBody; // Set before body was cleared, so it is visible here
+            return stored == null ? null : stored.read();
+        }
+
+        public void setBody(String body) {
+            this.body = body;
+            this.storedBody = null;
+        }
+
+        // Move the body off the heap into a body store; it is decoded again on every getBody
+        void storeBody(ArticleBodyStore store) throws IOException {
+            String heapBody = body;
+            if (heapBody != null) {
+                storedBody = store.put(heapBody);
+                body = null;
+            }
+        }
 
-        public String getBody() { return body; }
-        public void setBody(String body) { this.body = body; }
+        // Use a body stored earlier, e.g. one a snapshot recorded the location of
+        void setStoredBody(ArticleBodyStore.Body stored) {
+            storedBody = stored;
+            body = null;
+        }
+
+        // Location of the body if it lives in a body store, or null if it is on the heap
+        ArticleBodyStore.Body getStoredBody() {
+            return body == null ? storedBody : null;
+        }
 
         public List<String> getLinks() { return links; }
         public void setLinks(List<String> links) { this.links = links; }
 
-        public List<String> getGroups() { return groups; }
-        public void setGroups(List<String> groups) { this.groups = groups; }
+        public List<String> getGroups() { return Vocabulary.getInstance().decode(groupIds); }
+        public void setGroups(List<String> groups) { this.groupIds = Vocabulary.getInstance().encode(groups); }
+
+        public String getLevel() { return Vocabulary.getInstance().valueOf(levelId); }
+        public void setLevel(String level) { this.levelId = Vocabulary.getInstance().idOf(level); }
+
+        // Check whether the article is in a group, comparing vocabulary IDs; groups are trimmed as GroupIndex does
+        public boolean isInGroup(String group) {
+            return contains(groupIds, group);
+        }
+
+        // Check whether the article has a keyword, comparing vocabulary IDs; keywords are trimmed the same way
+        public boolean hasKeyword(String keyword) {
+            return contains(keywordIds, keyword);
+        }
+
+        // Helper to find a value in an encoded list, ignoring surrounding whitespace on either side.
+        // Values stored already trimmed match on the vocabulary ID; only untrimmed ones are decoded.
+        private static boolean contains(int[] ids, String value) {
+            if (ids == null || value == null) {
+                return false;
+            }
+            Vocabulary vocabulary = Vocabulary.getInstance();
+            String wanted = GroupIndex.normalize(value);
+            int wantedId = vocabulary.lookup(wanted);
+            for (int candidate : ids) {
+                if (candidate == wantedId) {
+                    return true;
+                }
+                String stored = vocabulary.valueOf(candidate);
+                if (stored != null && stored.length() != wanted.length() && GroupIndex.normalize(stored).equals(wanted)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        // Check whether another article has the same content, ignoring the ID
+        public boolean hasSameContent(HelpArticle other) {
+            return Objects.equals(title, other.title) && Objects.equals(description, other.description)
+                    && Arrays.equals(keywordIds, other.keywordIds) && Arrays.equals(groupIds, other.groupIds)
+                    && levelId == other.levelId && Objects.equals(links, other.links)
+                    && Objects.equals(getBody(), other.getBody());
+        }
+
+        private void writeObject(ObjectOutputStream out) throws IOException {
+            ObjectOutputStream.PutField fields = out.putFields();
+            fields.put("id", id);
+            fields.put("title", title);
+            fields.put("description", description);
+            fields.put("keywords", keywordIds == null ? null : new ArrayList<>(getKeywords()));
+            fields.put("body", getBody());
+            fields.put("links", links);
+            fields.put("groups", groupIds == null ? null : new ArrayList<>(getGroups()));
+            fields.put("level", getLevel());
+            out.writeFields();
+        }
 
-        public String getLevel() { return level; }
-        public void setLevel(String level) { this.level = level; }
+        @SuppressWarnings("unchecked")
+        private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+            ObjectInputStream.GetField fields = in.readFields();
+            id = fields.get("id", 0L);
+            title = (String) fields.get("title", null);
+            description = (String) fields.get("description", null);
+            keywordIds = Vocabulary.getInstance().encode((List<String>) fields.get("keywords", null));
+            body = (String) fields.get("body", null);
+            links = (List<String>) fields.get("links", null);
+            groupIds = Vocabulary.getInstance().encode((List<String>) fields.get("groups", null));
+            levelId = Vocabulary.getInstance().idOf((String) fields.get("level", null));
+        }
     }
 
     // Methods for managing help articles
 
-    // Add a help article to the user's list
+    // Add a help article to the shared repository, owned by this user
     public void addHelpArticle(HelpArticle article) {
-        helpArticles.add(article);
+        articleIds.add(article.getId()); // Owned before it is stored, so listeners see it as visible
+        hiddenIds.remove(article.getId());
+        articleRepository.addOwned(article, username);
     }
 
-    // Remove a help article by its ID
+    // Remove a help article visible to this user by its ID. The owner, admins and instructors delete it for
+    // everyone; anyone else only stops seeing a shared article.
     public void removeHelpArticle(long id) {
-        helpArticles.removeIf(article -> article.getId() == id);
+        if (canSee(id)) {
+            if (articleIds.contains(id) || canManageArticles()) {
+                articleRepository.remove(id);
+            } else {
+                hiddenIds.add(id);
+                visibleArticles = new Snapshot<>(-1, Collections.emptyList()); // Visibility changed without a repository change
+            }
+        }
+        articleIds.remove(id);
+    }
+
+    // Admins and instructors may delete shared articles
+    private boolean canManageArticles() {
+        return "Admin".equals(role) || "Instructor".equals(role);
     }
 
-    // Update an existing help article
+    // Update an existing help article visible to this user
     public void updateHelpArticle(long id, String title, String description, List<String> keywords, String body, List<String> links, List<String> groups, String level) {
-        for (HelpArticle article : helpArticles) {
-            if (article.getId() == id) {
-                article.setTitle(title);
-                article.setDescription(description);
-                article.setKeywords(keywords);
-                article.setBody(body);
-                article.setLinks(links);
-                article.setGroups(groups);
-                article.setLevel(level);
-            }
+        if (canSee(id)) {
+            articleRepository.update(id, title, description, keywords, body, links, groups, level);
         }
     }
 
     // Get help articles by group
     public List<HelpArticle> getHelpArticlesByGroup(String group) {
-        if ("all".equalsIgnoreCase(group)) {
-            return new ArrayList<>(helpArticles);
+        long start = System.nanoTime();
+        List<HelpArticle> articles = "all".equalsIgnoreCase(group) ? getAllHelpArticles() : resolveVisible(articleRepository.findByGroup(group));
+        Metrics.getInstance().recordGroupListing(System.nanoTime() - start);
+        return articles;
+    }
+
+    // Get help articles in all (matchAll) or any of the given groups
+    public List<HelpArticle> getHelpArticlesByGroups(Collection<String> groups, boolean matchAll) {
+        return resolveVisible(articleRepository.findByGroups(groups, matchAll));
+    }
+
+    // Get all help articles visible to this user, as a read-only list; repeated calls share one list until
+    // an article is added, updated or removed
+    public List<HelpArticle> getAllHelpArticles() {
+        return visibleSnapshot().getItems();
+    }
+
+    // Take a consistent, read-only view of the help articles visible to this user
+    public Snapshot<HelpArticle> visibleSnapshot() {
+        Snapshot<HelpArticle> visible = visibleArticles;
+        Snapshot<HelpArticle> all = articleRepository.snapshot();
+        if (visible.getVersion() == all.getVersion()) {
+            return visible;
         }
-        List<HelpArticle> filteredArticles = new ArrayList<>();
-        for (HelpArticle article : helpArticles) {
-            if (article.getGroups().contains(group)) {
-                filteredArticles.add(article);
+        // Owned articles are marked before they are stored and unmarked after they are removed,
+        // so this user's visibility never changes without the repository version changing too
+        List<HelpArticle> filtered = new ArrayList<>();
+        for (HelpArticle article : all.getItems()) {
+            if (canSee(article.getId())) {
+                filtered.add(article);
             }
         }
-        return filteredArticles;
+        visible = new Snapshot<>(all.getVersion(), filtered);
+        visibleArticles = visible;
+        return visible;
     }
 
-    // Get all help articles
-    public List<HelpArticle> getAllHelpArticles() {
-        return new ArrayList<>(helpArticles);
+    // Get the IDs of all help articles visible to this user, in insertion order
+    public List<Long> getVisibleArticleIds() {
+        List<Long> visible = new ArrayList<>();
+        for (Long id : articleRepository.getIds()) {
+            if (canSee(id)) {
+                visible.add(id);
+            }
+        }
+        return visible;
     }
 
-    // Search help articles by keyword in title or keywords
+    // Search help articles by case-insensitive tokens of their title, keywords, description or body, most relevant first
     public List<HelpArticle> searchHelpArticles(String keyword) {
+        long start = System.nanoTime();
+        List<HelpArticle> results = resolveVisible(articleRepository.search(keyword));
+        Metrics.getInstance().recordSearch(System.nanoTime() - start);
+        return results;
+    }
+
+    // Search like searchHelpArticles, returning only the limit most relevant articles visible to this user
+    public List<HelpArticle> searchHelpArticles(String keyword, int limit) {
+        long start = System.nanoTime();
+        List<HelpArticle> results = resolveVisible(articleRepository.search(keyword, limit, this::canSee));
+        Metrics.getInstance().recordSearch(System.nanoTime() - start);
+        return results;
+    }
+
+    // Titles and keywords of help articles visible to this user that start with what has been typed so far
+    public List<String> suggestHelpArticles(String prefix, int limit) {
+        return articleRepository.suggest(prefix, limit, this::canSee);
+    }
+
+    // Search like searchHelpArticles, returning only the IDs of the matching articles
+    public List<Long> searchHelpArticleIds(String keyword) {
+        long start = System.nanoTime();
+        List<Long> visible = new ArrayList<>();
+        for (Long id : articleRepository.search(keyword)) {
+            if (canSee(id)) {
+                visible.add(id);
+            }
+        }
+        Metrics.getInstance().recordSearch(System.nanoTime() - start);
+        return visible;
+    }
+
+    // Look up article IDs in the repository, keeping the ones visible to this user
+    private List<HelpArticle> resolveVisible(List<Long> ids) {
         List<HelpArticle> results = new ArrayList<>();
-        for (HelpArticle article : helpArticles) {
-            if (article.getKeywords().contains(keyword) || article.getTitle().contains(keyword)) {
+        for (Long id : ids) {
+            HelpArticle article = articleRepository.get(id);
+            if (article != null && canSee(id)) {
                 results.add(article);
             }
         }
         return results;
     }
+
+    // An article is visible to this user if they own it or it is shared with everyone and they have not removed it
+    boolean canSee(long id) {
+        return articleIds.contains(id) || (articleRepository.isShared(id) && !hiddenIds.contains(id));
+    }
+
+    // IDs of the articles this user owns, used by Login when the user is deleted or articles are restored
+    Set<Long> getArticleIds() {
+        return articleIds;
+    }
 }
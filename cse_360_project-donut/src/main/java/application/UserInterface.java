@@ -2,13 +2,12 @@ package application;
 
 // Import necessary JavaFX and utility classes
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.layout.VBox;
-import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 
-import java.io.File;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
@@ -19,25 +18,70 @@ public class UserInterface extends Application {
     private Login loginInstance = Login.getInstance(); // Singleton instance of Login class
     private User currentUser; // Currently logged-in user
 
+    // Scenes are built on first use and rebound to the current user afterwards
+    private Scene loginScene;
+    private Scene roleScene;
+    private Scene homeScene;
+    private Scene adminScene;
+    private ArticleDashboard articleDashboard; // Shared by the instructor and admin article screens
+
+    // Controls whose contents change per user or per visit
+    private final TextField loginUsernameField = new TextField();
+    private final PasswordField loginPasswordField = new PasswordField();
+    private final ComboBox<String> roleDropdown = new ComboBox<>();
+    private final TextField homeSearchField = new TextField();
+    private final ArticleListModel homeArticleList = new ArticleListModel();
+    private final SearchSuggestions homeSuggestions = new SearchSuggestions(homeSearchField, homeArticleList::showSearch);
+    private final TextField adminUsernameField = new TextField();
+    private final TextField adminPasswordField = new TextField();
+    private final ComboBox<String> adminRoleComboBox = new ComboBox<>();
+    private final CheckBox adminOneTimePasswordCheckBox = new CheckBox("One-Time Password");
+    private final TextField adminOtpExpiryField = new TextField();
+
     @Override
     public void start(Stage primaryStage) {
         window = primaryStage;
         window.setTitle("CSE 360 Help System");
 
+        // Load saved users and articles, and keep saving every change
+        loginInstance.openDataDirectory(System.getProperty("donut.data.dir", "donut-data"));
+        Metrics.getInstance().registerMBean(); // Visible in JConsole under application:type=Metrics
+
         // Display the login screen when the application starts
         showLoginScreen();
     }
 
+    @Override
+    public void stop() {
+        loginInstance.closeDataDirectory(); // Write out every logged change before exiting
+    }
+
     // Method to display the login screen
     private void showLoginScreen() {
+        if (loginScene == null) {
+            loginScene = buildLoginScene();
+        }
+        currentUser = null; // Logging out lands here
+        homeArticleList.detach();
+        if (articleDashboard != null) {
+            articleDashboard.unbind();
+        }
+        loginUsernameField.clear();
+        loginPasswordField.clear();
+        window.setScene(loginScene);
+        window.show();
+    }
+
+    // Build the login screen's controls once
+    private Scene buildLoginScene() {
         VBox vbox = new VBox(10); // Vertical box layout with spacing of 10 pixels
 
         // Username input field
-        TextField usernameField = new TextField();
+        TextField usernameField = loginUsernameField;
         usernameField.setPromptText("Username");
 
         // Password input field
-        PasswordField passwordField = new PasswordField();
+        PasswordField passwordField = loginPasswordField;
         passwordField.setPromptText("Password");
 
         // Login button
@@ -48,37 +92,52 @@ public class UserInterface extends Application {
             String username = usernameField.getText();
             String password = passwordField.getText();
 
-            // If no users exist, register the first user as an Admin
+            // If no users exist, register the first user as an Admin, hashing the password off the JavaFX thread
             if (Login.getInstance().listUsers().isEmpty()) {
-                User newUser = Login.getInstance().registerUser(username, password, "Admin", false, null);
-                currentUser = newUser; // Set the current user
-                showRegistrationScreen(newUser);
+                loginButton.setDisable(true);
+                Login.getInstance().registerUserAsync(username, password, "Admin", false, null).whenComplete((newUser, error) ->
+                        Platform.runLater(() -> {
+                            loginButton.setDisable(false);
+                            if (error == null) {
+                                currentUser = newUser; // Set the current user
+                                showRegistrationScreen(newUser);
+                            } else {
+                                System.out.println("Login is busy. Please try again.");
+                            }
+                        }));
             } else {
-                // Authenticate the user
-                boolean isAuthenticated = Login.getInstance().authenticate(username, password);
-                if (isAuthenticated) {
-                    User user = Login.getInstance().findUser(username);
-                    currentUser = user; // Set the current user
-                    if (user != null && !user.isAccountSetupComplete()) {
-                        // If account setup is incomplete, show the registration screen
-                        showRegistrationScreen(user);
-                    } else {
-                        // Show role selection screen
-                        showRoleSelectionScreen(user);
-                    }
-                } else {
-                    System.out.println("Login failed. If this is a one-time password, it may have expired.");
-                }
+                // Authenticate the user off the JavaFX thread; password hashing is deliberately slow
+                loginButton.setDisable(true);
+                Login.getInstance().authenticateAsync(username, password).whenComplete((isAuthenticated, error) ->
+                        Platform.runLater(() -> {
+                            loginButton.setDisable(false);
+                            if (error == null && isAuthenticated) {
+                                User user = Login.getInstance().findUser(username);
+                                currentUser = user; // Set the current user
+                                if (user != null && !user.isAccountSetupComplete()) {
+                                    // If account setup is incomplete, show the registration screen
+                                    showRegistrationScreen(user);
+                                } else {
+                                    // Show role selection screen
+                                    showRoleSelectionScreen(user);
+                                }
+                            } else if (error != null) {
+                                System.out.println("Login is busy. Please try again.");
+                            } else {
+                                User user = Login.getInstance().findUser(username);
+                                if (user != null && user.isOtpExpired()) {
+                                    System.out.println("One-time password has expired. Please reset your password.");
+                                } else {
+                                    System.out.println("Login failed.");
+                                }
+                            }
+                        }));
             }
         });
 
         // Add components to the layout
         vbox.getChildren().addAll(usernameField, passwordField, loginButton);
-
-        // Set the scene and display the login screen
-        Scene loginScene = new Scene(vbox, 400, 300);
-        window.setScene(loginScene);
-        window.show();
+        return new Scene(vbox, 400, 300);
     }
 
     // Method to display the registration screen for account setup
@@ -121,7 +180,7 @@ public class UserInterface extends Application {
         // Event handler for the register button
         registerButton.setOnAction(e -> {
             // Set user details
-            user.setEmail(emailField.getText());
+            loginInstance.updateEmail(user, emailField.getText());
             user.setFirstName(firstNameField.getText());
             user.setMiddleName(middleNameField.getText());
             user.setLastName(lastNameField.getText());
@@ -133,6 +192,7 @@ public class UserInterface extends Application {
             }
 
             user.setAccountSetupComplete(true); // Mark account setup as complete
+            loginInstance.saveUser(user); // Save the profile to the data directory
             System.out.println("Account setup completed.");
             showRoleSelectionScreen(user); // Proceed to role selection screen
         });
@@ -148,11 +208,21 @@ public class UserInterface extends Application {
 
     // Method to display the role selection screen
     private void showRoleSelectionScreen(User user) {
+        if (roleScene == null) {
+            roleScene = buildRoleScene();
+        }
+        currentUser = user; // Set the current user
+        roleDropdown.getItems().setAll(user.getRole()); // User's available roles
+        roleDropdown.setValue(null);
+        window.setScene(roleScene);
+        window.show();
+    }
+
+    // Build the role selection screen's controls once
+    private Scene buildRoleScene() {
         VBox vbox = new VBox(10);
 
         // ComboBox to select the user's role
-        ComboBox<String> roleDropdown = new ComboBox<>();
-        roleDropdown.getItems().addAll(user.getRole()); // User's available roles
         roleDropdown.setPromptText("Select Role");
 
         // Button to confirm role selection
@@ -163,59 +233,56 @@ public class UserInterface extends Application {
             String selectedRole = roleDropdown.getValue();
             System.out.println("Role Selected: " + selectedRole);
             if ("Admin".equals(selectedRole)) {
-                showAdminDashboard(user); // Show admin dashboard
+                showAdminDashboard(currentUser); // Show admin dashboard
             } else if ("Instructor".equals(selectedRole)) {
-                showInstructorDashboard(user); // Show instructor dashboard
+                showInstructorDashboard(currentUser); // Show instructor dashboard
             } else {
-                showSimpleHomePage(user); // Show student home page
+                showSimpleHomePage(currentUser); // Show student home page
             }
         });
 
         // Add components to the layout
         vbox.getChildren().addAll(new Label("Select Role"), roleDropdown, selectButton);
-
-        // Set the scene and display the role selection screen
-        Scene roleScene = new Scene(vbox, 400, 200);
-        window.setScene(roleScene);
-        window.show();
+        return new Scene(vbox, 400, 200);
     }
 
     // Method to display the student's home page
     private void showSimpleHomePage(User user) {
+        if (homeScene == null) {
+            homeScene = buildHomeScene();
+        }
         currentUser = user; // Set the current user
+        homeSearchField.clear();
+        homeArticleList.setUser(user);
+        homeSuggestions.setUser(user);
+        window.setScene(homeScene);
+        window.show();
+    }
 
+    // Build the student home page's controls once
+    private Scene buildHomeScene() {
         VBox vbox = new VBox(10);
         Button logoutButton = new Button("Logout");
 
         // Search functionality components
-        TextField searchField = new TextField();
+        TextField searchField = homeSearchField;
         searchField.setPromptText("Enter keyword to search");
 
         Button searchButton = new Button("Search Articles");
         Button listArticlesButton = new Button("List All Articles");
 
-        ListView<String> articlesListView = new ListView<>(); // ListView to display article titles
+        ArticleListModel articleList = homeArticleList; // Lists article IDs, loading titles per visible row
 
         // Event handler for the search button
         searchButton.setOnAction(e -> {
             String keyword = searchField.getText();
             if (keyword != null && !keyword.isEmpty()) {
-                List<User.HelpArticle> results = currentUser.searchHelpArticles(keyword.trim());
-                articlesListView.getItems().clear();
-                for (User.HelpArticle article : results) {
-                    articlesListView.getItems().add(article.getTitle());
-                }
+                articleList.showSearch(keyword.trim());
             }
         });
 
         // Event handler for listing all articles
-        listArticlesButton.setOnAction(e -> {
-            List<User.HelpArticle> articles = currentUser.getAllHelpArticles();
-            articlesListView.getItems().clear();
-            for (User.HelpArticle article : articles) {
-                articlesListView.getItems().add(article.getTitle());
-            }
-        });
+        listArticlesButton.setOnAction(e -> articleList.showAll());
 
         // Event handler for the logout button
         logoutButton.setOnAction(e -> {
@@ -227,303 +294,66 @@ public class UserInterface extends Application {
         vbox.getChildren().addAll(
                 new Label("Home Page"),
                 new Separator(), // Visual separator
-                searchField, searchButton, listArticlesButton, articlesListView,
+                searchField, searchButton, listArticlesButton, articleList.getListView(),
                 new Separator(),
                 logoutButton);
-
-        // Set the scene and display the home page
-        Scene homeScene = new Scene(vbox, 600, 800);
-        window.setScene(homeScene);
-        window.show();
+        return new Scene(vbox, 600, 800);
     }
 
     // Method to display the instructor dashboard
     private void showInstructorDashboard(User user) {
         currentUser = user; // Set the current user
-
-        VBox vbox = new VBox(10);
-        Button logoutButton = new Button("Logout");
-
-        // Input fields for article details
-        TextField titleField = new TextField();
-        titleField.setPromptText("Title");
-
-        TextField descriptionField = new TextField();
-        descriptionField.setPromptText("Description");
-
-        TextField keywordsField = new TextField();
-        keywordsField.setPromptText("Keywords (comma-separated)");
-
-        TextArea bodyArea = new TextArea();
-        bodyArea.setPromptText("Body of the article");
-
-        TextField groupsField = new TextField();
-        groupsField.setPromptText("Groups (comma-separated)");
-
-        TextField levelField = new TextField();
-        levelField.setPromptText("Level (Beginner, Intermediate, Advanced, Expert)");
-
-        // Button to add a new article
-        Button addArticleButton = new Button("Add Article");
-        addArticleButton.setOnAction(e -> addArticle(
-                titleField.getText(), descriptionField.getText(),
-                Arrays.asList(keywordsField.getText().split(",")),
-                bodyArea.getText(), new ArrayList<>(),
-                Arrays.asList(groupsField.getText().split(",")), levelField.getText()));
-
-        // Search functionality components
-        TextField searchField = new TextField();
-        searchField.setPromptText("Enter keyword to search");
-
-        Button searchButton = new Button("Search Articles");
-        Button listArticlesButton = new Button("List All Articles");
-
-        ListView<String> articlesListView = new ListView<>(); // ListView to display article titles
-
-        // Map to associate article titles with their IDs for deletion
-        Map<String, Long> articleTitleToIdMap = new HashMap<>();
-
-        // Event handler for the search button
-        searchButton.setOnAction(e -> {
-            String keyword = searchField.getText();
-            if (keyword != null && !keyword.isEmpty()) {
-                List<User.HelpArticle> results = currentUser.searchHelpArticles(keyword.trim());
-                articlesListView.getItems().clear();
-                articleTitleToIdMap.clear();
-                for (User.HelpArticle article : results) {
-                    articlesListView.getItems().add(article.getTitle());
-                    articleTitleToIdMap.put(article.getTitle(), article.getId());
-                }
-            }
-        });
-
-        // Event handler for listing all articles
-        listArticlesButton.setOnAction(e -> {
-            List<User.HelpArticle> articles = currentUser.getAllHelpArticles();
-            articlesListView.getItems().clear();
-            articleTitleToIdMap.clear();
-            for (User.HelpArticle article : articles) {
-                articlesListView.getItems().add(article.getTitle());
-                articleTitleToIdMap.put(article.getTitle(), article.getId());
-            }
-        });
-
-        // Button to delete the selected article
-        Button deleteArticleButton = new Button("Delete Selected Article");
-        deleteArticleButton.setOnAction(e -> {
-            String selectedTitle = articlesListView.getSelectionModel().getSelectedItem();
-            if (selectedTitle != null) {
-                Long articleId = articleTitleToIdMap.get(selectedTitle);
-                if (articleId != null) {
-                    currentUser.removeHelpArticle(articleId); // Remove article from user's list
-                    System.out.println("Article Deleted: " + selectedTitle);
-                    articlesListView.getItems().remove(selectedTitle); // Remove from ListView
-                }
-            } else {
-                System.out.println("No article selected for deletion.");
-            }
-        });
-
-        // Buttons for backup and restore functionality
-        Button backupButton = new Button("Backup Articles");
-        backupButton.setOnAction(e -> backupArticles());
-
-        Button restoreButton = new Button("Restore Articles");
-        restoreButton.setOnAction(e -> restoreArticles());
-
-        // Event handler for the logout button
-        logoutButton.setOnAction(e -> {
-            System.out.println("Logging out.");
-            showLoginScreen(); // Return to login screen
-        });
-
-        // Add components to the layout
-        vbox.getChildren().addAll(
-                new Label("Instructor Dashboard"),
-                titleField, descriptionField, keywordsField, bodyArea, groupsField, levelField,
-                addArticleButton,
-                new Separator(),
-                searchField, searchButton, listArticlesButton, articlesListView, deleteArticleButton,
-                new Separator(),
-                backupButton, restoreButton, logoutButton);
-
-        // Set the scene and display the instructor dashboard
-        Scene instructorScene = new Scene(vbox, 600, 800);
-        window.setScene(instructorScene);
+        window.setScene(articleDashboard().bind(user, "Instructor Dashboard"));
         window.show();
     }
 
     // Method to display the admin's article management dashboard
     private void showArticleDashboard() {
-        VBox vbox = new VBox(10);
-
-        // Input fields for article details
-        TextField titleField = new TextField();
-        titleField.setPromptText("Title");
-
-        TextField descriptionField = new TextField();
-        descriptionField.setPromptText("Description");
-
-        TextField keywordsField = new TextField();
-        keywordsField.setPromptText("Keywords (comma-separated)");
-
-        TextArea bodyArea = new TextArea();
-        bodyArea.setPromptText("Body of the article");
-
-        TextField groupsField = new TextField();
-        groupsField.setPromptText("Groups (comma-separated)");
-
-        TextField levelField = new TextField();
-        levelField.setPromptText("Level (Beginner, Intermediate, Advanced, Expert)");
-
-        // Button to add a new article
-        Button addArticleButton = new Button("Add Article");
-        addArticleButton.setOnAction(e -> addArticle(
-                titleField.getText(), descriptionField.getText(),
-                Arrays.asList(keywordsField.getText().split(",")),
-                bodyArea.getText(), new ArrayList<>(),
-                Arrays.asList(groupsField.getText().split(",")), levelField.getText()));
-
-        // Search functionality components
-        TextField searchField = new TextField();
-        searchField.setPromptText("Enter keyword to search");
-
-        Button searchButton = new Button("Search Articles");
-        Button listArticlesButton = new Button("List All Articles");
-
-        ListView<String> articlesListView = new ListView<>(); // ListView to display article titles
-
-        // Map to associate article titles with their IDs for deletion
-        Map<String, Long> articleTitleToIdMap = new HashMap<>();
-
-        // Event handler for the search button
-        searchButton.setOnAction(e -> {
-            String keyword = searchField.getText();
-            if (keyword != null && !keyword.isEmpty()) {
-                List<User.HelpArticle> results = currentUser.searchHelpArticles(keyword.trim());
-                articlesListView.getItems().clear();
-                articleTitleToIdMap.clear();
-                for (User.HelpArticle article : results) {
-                    articlesListView.getItems().add(article.getTitle());
-                    articleTitleToIdMap.put(article.getTitle(), article.getId());
-                }
-            }
-        });
-
-        // Event handler for listing all articles
-        listArticlesButton.setOnAction(e -> {
-            List<User.HelpArticle> articles = currentUser.getAllHelpArticles();
-            articlesListView.getItems().clear();
-            articleTitleToIdMap.clear();
-            for (User.HelpArticle article : articles) {
-                articlesListView.getItems().add(article.getTitle());
-                articleTitleToIdMap.put(article.getTitle(), article.getId());
-            }
-        });
-
-        // Button to delete the selected article
-        Button deleteArticleButton = new Button("Delete Selected Article");
-        deleteArticleButton.setOnAction(e -> {
-            String selectedTitle = articlesListView.getSelectionModel().getSelectedItem();
-            if (selectedTitle != null) {
-                Long articleId = articleTitleToIdMap.get(selectedTitle);
-                if (articleId != null) {
-                    currentUser.removeHelpArticle(articleId); // Remove article from user's list
-                    System.out.println("Article Deleted: " + selectedTitle);
-                    articlesListView.getItems().remove(selectedTitle); // Remove from ListView
-                }
-            } else {
-                System.out.println("No article selected for deletion.");
-            }
-        });
-
-        // Buttons for backup and restore functionality
-        Button backupButton = new Button("Backup Articles");
-        backupButton.setOnAction(e -> backupArticles());
-
-        Button restoreButton = new Button("Restore Articles");
-        restoreButton.setOnAction(e -> restoreArticles());
-
-        // Logout button
-        Button logoutButton = new Button("Logout");
-        logoutButton.setOnAction(e -> {
-            System.out.println("Logging out.");
-            showLoginScreen(); // Return to login screen
-        });
-
-        // Add components to the layout
-        vbox.getChildren().addAll(
-                new Label("Article Dashboard"),
-                titleField, descriptionField, keywordsField, bodyArea, groupsField, levelField,
-                addArticleButton,
-                new Separator(),
-                searchField, searchButton, listArticlesButton, articlesListView, deleteArticleButton,
-                new Separator(),
-                backupButton, restoreButton, logoutButton
-        );
-
-        // Set the scene and display the article dashboard
-        Scene articleScene = new Scene(vbox, 600, 800);
-        window.setScene(articleScene);
+        window.setScene(articleDashboard().bind(currentUser, "Article Dashboard"));
         window.show();
     }
 
-    // Method to add a new article to the current user's list
-    private void addArticle(String title, String description, List<String> keywords, String body, List<String> links, List<String> groups, String level) {
-        if (currentUser != null) {
-            User.HelpArticle newArticle = new User.HelpArticle(System.currentTimeMillis(), title, description, keywords, body, links, groups, level);
-            currentUser.addHelpArticle(newArticle); // Add the new article
-            System.out.println("Article Added: " + title);
-        } else {
-            System.out.println("No user is currently logged in.");
-        }
-    }
-
-    // Method to backup articles to a file
-    private void backupArticles() {
-        FileChooser fileChooser = new FileChooser();
-        fileChooser.setTitle("Save Backup");
-        File file = fileChooser.showSaveDialog(window); // Show save dialog
-        if (file != null) {
-            loginInstance.backupHelpArticles(file.getAbsolutePath()); // Backup articles
-        }
-    }
-
-    // Method to restore articles from a file
-    private void restoreArticles() {
-        FileChooser fileChooser = new FileChooser();
-        fileChooser.setTitle("Open Backup File");
-        File file = fileChooser.showOpenDialog(window); // Show open dialog
-        if (file != null) {
-            // Confirmation dialog for merge option
-            Alert alert = new Alert(Alert.AlertType.CONFIRMATION, "Do you want to merge with existing articles?", ButtonType.YES, ButtonType.NO);
-            alert.showAndWait().ifPresent(response -> {
-                boolean merge = response == ButtonType.YES;
-                loginInstance.restoreHelpArticles(file.getAbsolutePath(), merge); // Restore articles
-            });
+    // Article dashboard, built on first use
+    private ArticleDashboard articleDashboard() {
+        if (articleDashboard == null) {
+            articleDashboard = new ArticleDashboard(window, this::showLoginScreen);
         }
+        return articleDashboard;
     }
 
     // Method to display the admin dashboard
     private void showAdminDashboard(User user) {
+        if (adminScene == null) {
+            adminScene = buildAdminScene();
+        }
         currentUser = user; // Set the current user
+        adminUsernameField.clear();
+        adminPasswordField.clear();
+        adminRoleComboBox.setValue("Student"); // Default role
+        adminOneTimePasswordCheckBox.setSelected(false);
+        adminOtpExpiryField.clear();
+        window.setScene(adminScene);
+        window.show();
+    }
+
+    // Build the admin dashboard's controls once
+    private Scene buildAdminScene() {
         VBox vbox = new VBox(10);
 
         // Input fields for user management
-        TextField usernameField = new TextField();
+        TextField usernameField = adminUsernameField;
         usernameField.setPromptText("Enter Username");
 
-        TextField newUserPasswordField = new TextField();
+        TextField newUserPasswordField = adminPasswordField;
         newUserPasswordField.setPromptText("Enter Password");
 
         // ComboBox to select user role
-        ComboBox<String> roleComboBox = new ComboBox<>();
+        ComboBox<String> roleComboBox = adminRoleComboBox;
         roleComboBox.getItems().addAll("Student", "Instructor");
-        roleComboBox.setValue("Student"); // Default role
 
         // Checkbox and input for one-time password
-        CheckBox oneTimePasswordCheckBox = new CheckBox("One-Time Password");
-        TextField otpExpiryField = new TextField();
+        CheckBox oneTimePasswordCheckBox = adminOneTimePasswordCheckBox;
+        TextField otpExpiryField = adminOtpExpiryField;
         otpExpiryField.setPromptText("OTP Expiry (YYYY-MM-DD HH:MM)");
 
         // Buttons for user management
@@ -554,8 +384,16 @@ public class UserInterface extends Application {
 
             // Register the new user
             if (!username.isEmpty() && !password.isEmpty()) {
-                Login.getInstance().registerUser(username, password, role, isOneTimePassword, otpExpiry);
-                System.out.println("User added successfully.");
+                addUserButton.setDisable(true);
+                Login.getInstance().registerUserAsync(username, password, role, isOneTimePassword, otpExpiry).whenComplete((newUser, error) ->
+                        Platform.runLater(() -> {
+                            addUserButton.setDisable(false);
+                            if (error == null) {
+                                System.out.println("User added successfully.");
+                            } else {
+                                System.out.println("Failed to add user. Please try again.");
+                            }
+                        }));
             } else {
                 System.out.println("Please enter a username and password.");
             }
@@ -582,12 +420,18 @@ public class UserInterface extends Application {
             if (!usernameToReset.isEmpty()) {
                 String newPassword = newUserPasswordField.getText();
                 if (!newPassword.isEmpty()) {
-                    boolean isReset = Login.getInstance().resetPassword(usernameToReset, newPassword);
-                    if (isReset) {
-                        System.out.println("Password reset successfully.");
-                    } else {
-                        System.out.println("Failed to reset password. User may not exist.");
-                    }
+                    resetPasswordButton.setDisable(true);
+                    Login.getInstance().resetPasswordAsync(usernameToReset, newPassword).whenComplete((isReset, error) ->
+                            Platform.runLater(() -> {
+                                resetPasswordButton.setDisable(false);
+                                if (error == null && isReset) {
+                                    System.out.println("Password reset successfully.");
+                                } else if (error != null) {
+                                    System.out.println("Failed to reset password. Please try again.");
+                                } else {
+                                    System.out.println("Failed to reset password. User may not exist.");
+                                }
+                            }));
                 } else {
                     System.out.println("Please enter a new password.");
                 }
@@ -631,10 +475,7 @@ public class UserInterface extends Application {
                 logoutButton
         );
 
-        // Set the scene and display the admin dashboard
-        Scene adminScene = new Scene(vbox, 400, 600);
-        window.setScene(adminScene);
-        window.show();
+        return new Scene(vbox, 400, 600);
     }
 
     public static void main(String[] args) {
@@ -0,0 +1,104 @@
+package application;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Shared dictionary of the keywords, groups and levels used by help articles, so each article stores small int IDs
+// instead of its own strings. IDs are never reused or removed; the vocabulary only holds distinct values.
+public class Vocabulary {
+
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>(); // Value -> ID
+    private volatile String[] values = new String[256]; // ID -> value; replaced, never shrunk, when it fills up
+    private int size = 0; // Number of IDs handed out, guarded by this
+
+    // Lazily initialized holder, so the singleton is safely published without locking
+    private static class Holder {
+        private static final Vocabulary INSTANCE = new Vocabulary();
+    }
+
+    // Method to get the singleton instance
+    public static Vocabulary getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    private Vocabulary() {} // Private constructor to prevent instantiation
+
+    // Get the ID of a value, adding it to the vocabulary if it is new; null is -1
+    public int idOf(String value) {
+        if (value == null) {
+            return -1;
+        }
+        Integer id = ids.get(value);
+        if (id != null) {
+            return id;
+        }
+        synchronized (this) {
+            id = ids.get(value);
+            if (id == null) {
+                if (size == values.length) {
+                    values = Arrays.copyOf(values, size * 2);
+                }
+                values[size] = value; // Stored before the ID is published through the map
+                id = size++;
+                ids.put(value, id);
+            }
+            return id;
+        }
+    }
+
+    // Get the ID of a value without adding it, or -1 if no article ever used it
+    public int lookup(String value) {
+        Integer id = value == null ? null : ids.get(value);
+        return id == null ? -1 : id;
+    }
+
+    // Get the value of an ID handed out by idOf
+    public String valueOf(int id) {
+        return id < 0 ? null : values[id];
+    }
+
+    // Encode a list of values; null stays null
+    public int[] encode(List<String> list) {
+        if (list == null) {
+            return null;
+        }
+        int[] encoded = new int[list.size()];
+        for (int i = 0; i < encoded.length; i++) {
+            encoded[i] = idOf(list.get(i));
+        }
+        return encoded;
+    }
+
+    // Read-only list view of encoded values; null stays null
+    public List<String> decode(int[] encoded) {
+        return encoded == null ? null : new DecodedList(encoded);
+    }
+
+    // Number of distinct values
+    public synchronized int size() {
+        return size;
+    }
+
+    // List of values backed by an array of IDs, decoded as they are read
+    private class DecodedList extends AbstractList<String> implements RandomAccess {
+        private final int[] encoded;
+
+        DecodedList(int[] encoded) {
+            this.encoded = encoded;
+        }
+
+        @Override
+        public String get(int index) {
+            return valueOf(encoded[index]);
+        }
+
+        @Override
+        public int size() {
+            return encoded.length;
+        }
+    }
+}
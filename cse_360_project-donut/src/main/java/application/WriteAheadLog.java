@@ -0,0 +1,277 @@
+package application;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+// Append-only log of records split into segment files, with group-committed fsyncs.
+// Each record is [int length][int crc32][byte type][payload]; the crc covers the type and payload.
+// Records are numbered from 1; a segment file is named after the number of its first record.
+public class WriteAheadLog implements Closeable {
+
+    static final String SEGMENT_PREFIX = "wal-";
+    static final String SEGMENT_SUFFIX = ".log";
+    private static final int HEADER_SIZE = 4 + 4; // Length and checksum ahead of the type byte
+    private static final int MAX_RECORD_SIZE = 256 * 1024 * 1024; // Larger lengths can only come from a torn write
+
+    // Receives each intact record during a replay
+    public interface RecordHandler {
+        void apply(byte type, ByteBuffer payload) throws IOException;
+    }
+
+    private final Path directory;
+    private FileChannel channel; // Segment being appended to
+    private ByteArrayOutputStream pending = new ByteArrayOutputStream(); // Records appended but not yet written
+    private ByteArrayOutputStream flushing = new ByteArrayOutputStream(); // Records the flusher is writing
+    private long appendedSeq = 0; // Number of the latest appended record
+    private long durableSeq = 0; // Number of the latest record known to be on disk
+    private boolean closed = false;
+    private IOException failure; // Set when a write or fsync fails; later appends are refused
+    private Thread flusher;
+
+    public WriteAheadLog(Path directory) {
+        this.directory = directory;
+    }
+
+    // Name of the segment whose first record has the given number
+    static String segmentName(long firstSeq) {
+        return String.format("%s%020d%s", SEGMENT_PREFIX, firstSeq, SEGMENT_SUFFIX);
+    }
+
+    // Replay every intact record numbered fromSeq or later, oldest first; returns the number of the last record.
+    // A torn record at the end of the newest segment (a crash mid-write) is cut off.
+    public long replay(long fromSeq, RecordHandler handler) throws IOException {
+        List<Long> segments = listSegments();
+        long lastSeq = fromSeq - 1;
+        for (int i = 0; i < segments.size(); i++) {
+            long firstSeq = segments.get(i);
+            long nextFirstSeq = i + 1 < segments.size() ? segments.get(i + 1) : Long.MAX_VALUE;
+            if (nextFirstSeq <= fromSeq) {
+                continue; // Every record of this segment is older than fromSeq
+            }
+            Path segment = directory.resolve(segmentName(firstSeq));
+            long seq = firstSeq;
+            long validLength;
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(segment), 64 * 1024))) {
+                validLength = 0;
+                ByteBuffer record;
+                while ((record = readRecord(in)) != null) {
+                    if (seq >= fromSeq) {
+                        handler.apply(record.get(), record);
+                    }
+                    validLength += HEADER_SIZE + record.limit();
+                    seq++;
+                }
+            }
+            if (validLength < Files.size(segment)) {
+                if (i + 1 < segments.size()) {
+                    throw new IOException("Corrupt record in " + segment + " followed by later segments");
+                }
+                try (FileChannel file = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+                    file.truncate(validLength); // Drop the torn tail so new records do not follow garbage
+                    file.force(true);
+                }
+            }
+            lastSeq = Math.max(lastSeq, seq - 1);
+        }
+        return lastSeq;
+    }
+
+    // Start appending to a new segment whose first record gets the given number
+    public synchronized void start(long nextSeq) throws IOException {
+        channel = openSegment(nextSeq);
+        appendedSeq = nextSeq - 1;
+        durableSeq = nextSeq - 1;
+        flusher = new Thread(this::flushLoop, "wal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    // Append a record (the payload between its position and limit) without waiting for it to reach the disk;
+    // returns its number
+    public synchronized long append(byte type, ByteBuffer payload) throws IOException {
+        if (failure != null) {
+            throw failure;
+        }
+        if (closed || channel == null) {
+            throw new IOException("Write-ahead log is not open");
+        }
+        byte[] record = encode(type, payload);
+        pending.write(record, 0, record.length);
+        appendedSeq++;
+        notifyAll(); // Wake the flusher
+        return appendedSeq;
+    }
+
+    // Wait until a record is on disk; returns false if the log failed before it was written
+    public synchronized boolean awaitDurable(long seq) {
+        boolean interrupted = false;
+        while (durableSeq < seq && failure == null) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrupted = true; // Keep waiting, the caller relies on the record being durable
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return durableSeq >= seq;
+    }
+
+    // Make every appended record durable and continue in a new segment; returns the new segment's first record number
+    public synchronized long rotate() throws IOException {
+        while (!awaitDurable(appendedSeq) || durableSeq < appendedSeq) {
+            if (failure != null) {
+                throw failure;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        // Nothing is pending or being written while the lock is held, so the channel can be swapped
+        channel.close();
+        channel = openSegment(appendedSeq + 1);
+        return appendedSeq + 1;
+    }
+
+    // Delete the segments that only hold records numbered below seq
+    public void deleteSegmentsBefore(long seq) throws IOException {
+        List<Long> segments = listSegments();
+        for (int i = 0; i + 1 < segments.size() && segments.get(i + 1) <= seq; i++) {
+            Files.deleteIfExists(directory.resolve(segmentName(segments.get(i))));
+        }
+    }
+
+    // Write every appended record to disk and close the log
+    @Override
+    public void close() throws IOException {
+        Thread thread;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            while (awaitDurable(appendedSeq) && durableSeq < appendedSeq) {
+                // Records appended while waiting are written before closing too
+            }
+            closed = true;
+            notifyAll();
+            thread = flusher;
+        }
+        if (thread != null) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            if (channel != null) {
+                channel.close();
+            }
+        }
+    }
+
+    // Frame a record: [int length][int crc32][byte type][payload]
+    static byte[] encode(byte type, ByteBuffer payload) {
+        ByteBuffer body = payload.duplicate();
+        ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + 1 + body.remaining());
+        record.putInt(1 + body.remaining()).putInt(0).put(type).put(body);
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), HEADER_SIZE, record.capacity() - HEADER_SIZE);
+        record.putInt(4, (int) crc.getValue());
+        return record.array();
+    }
+
+    // Read the next record's type and payload, or null at the end of input or at a torn or corrupt record
+    static ByteBuffer readRecord(DataInputStream in) throws IOException {
+        try {
+            int length = in.readInt();
+            int checksum = in.readInt();
+            if (length < 1 || length > MAX_RECORD_SIZE) {
+                return null; // Garbage length, most likely a torn write
+            }
+            byte[] body = new byte[length];
+            in.readFully(body);
+            CRC32 crc = new CRC32();
+            crc.update(body, 0, length);
+            if ((int) crc.getValue() != checksum) {
+                return null;
+            }
+            return ByteBuffer.wrap(body);
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    // Flusher thread: write whatever accumulated while the previous fsync ran, then fsync once for all of it
+    private void flushLoop() {
+        while (true) {
+            long upTo;
+            FileChannel target;
+            synchronized (this) {
+                while (pending.size() == 0 && !closed) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (pending.size() == 0) {
+                    return; // Closed with nothing left to write
+                }
+                ByteArrayOutputStream batch = pending;
+                pending = flushing;
+                flushing = batch;
+                upTo = appendedSeq;
+                target = channel;
+            }
+            try {
+                ByteBuffer buffer = ByteBuffer.wrap(flushing.toByteArray());
+                while (buffer.hasRemaining()) {
+                    target.write(buffer);
+                }
+                target.force(false);
+                flushing.reset();
+                synchronized (this) {
+                    durableSeq = upTo;
+                    notifyAll();
+                }
+            } catch (IOException e) {
+                synchronized (this) {
+                    failure = e;
+                    notifyAll();
+                }
+                System.out.println("Error writing the write-ahead log: " + e.getMessage());
+                return;
+            }
+        }
+    }
+
+    // Helper to create a segment file for appending
+    private FileChannel openSegment(long firstSeq) throws IOException {
+        return FileChannel.open(directory.resolve(segmentName(firstSeq)),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    // First record numbers of the segments in the directory, in order
+    private List<Long> listSegments() throws IOException {
+        List<Long> segments = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    segments.add(Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    // Not a segment written by this class
+                }
+            }
+        }
+        segments.sort(null);
+        return segments;
+    }
+}
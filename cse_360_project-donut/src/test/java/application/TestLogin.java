@@ -4,7 +4,27 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
 
+import javax.management.JMX;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
 
 public class TestLogin {
 
@@ -12,8 +32,11 @@ public class TestLogin {
 
     @BeforeEach
     public void setup() {
+        PasswordHasher.setIterations(1_000); // Keep hashing cheap in tests
         login = Login.getInstance();
-        login.listUsers().clear(); // Clear users before each test
+        for (User user : login.listUsers()) { // Clear users before each test
+            login.deleteUser(user.getUsername());
+        }
     }
 
     //@Test
@@ -55,6 +78,403 @@ public class TestLogin {
         assertFalse(login.deleteUser("nonexistentUser"));
     }
 
+    @Test
+    public void testFindUserByEmail() {
+        User user = login.registerUser("user2", "password2", "Student", false, null);
+        login.updateEmail(user, "user2@example.com");
+        assertSame(user, login.findUser("user2"));
+        assertSame(user, login.findUserByEmail("user2@example.com"));
+
+        login.updateEmail(user, "changed@example.com");
+        assertNull(login.findUserByEmail("user2@example.com"));
+        assertSame(user, login.findUserByEmail("changed@example.com"));
+
+        login.deleteUser("user2");
+        assertNull(login.findUserByEmail("changed@example.com"));
+    }
+
+    @Test
+    public void testConcurrentRegisterAndAuthenticate() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int thread = t;
+            futures.add(pool.submit(() -> {
+                for (int i = 0; i < 200; i++) {
+                    String name = "concurrent" + thread + "_" + i;
+                    login.registerUser(name, "pw" + i, "Student", false, null);
+                    assertTrue(login.authenticate(name, "pw" + i));
+                    login.listUsers(); // Must not throw while other threads register
+                    assertTrue(login.deleteUser(name));
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        pool.shutdown();
+        assertNull(login.findUser("concurrent0_0"));
+    }
+
+    @Test
+    public void testBackupAndRestoreStoreArticlesOnce() throws Exception {
+        ArticleRepository.getInstance().clear();
+        User author = login.registerUser("author", "pw", "Instructor", false, null);
+        User reader = login.registerUser("reader", "pw", "Student", false, null);
+        author.addHelpArticle(new User.HelpArticle(42, "Backups", "desc", Arrays.asList("backup"),
+                "body", new ArrayList<>(), Arrays.asList("general"), "Beginner"));
+        assertTrue(reader.getAllHelpArticles().isEmpty());
+
+        File file = File.createTempFile("articles", ".bak");
+        file.deleteOnExit();
+        login.backupHelpArticles(file.getAbsolutePath());
+        login.restoreHelpArticles(file.getAbsolutePath(), false);
+
+        assertEquals(1, ArticleRepository.getInstance().size());
+        assertEquals(1, author.getAllHelpArticles().size());
+        assertEquals(1, reader.getAllHelpArticles().size()); // Restored articles are shared
+
+        // A record claiming more bytes than the file holds is rejected before anything is allocated for it
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(4).putInt(0, Integer.MAX_VALUE), 4 + 2 + 1 + 8 + 8);
+        }
+        try (ArticleBackupReader corrupt = new ArticleBackupReader(file.getAbsolutePath())) {
+            assertThrows(IOException.class, corrupt::next);
+        }
+        login.deleteUser("author");
+        login.deleteUser("reader");
+    }
+
+    @Test
+    public void testIncrementalBackupChain() throws Exception {
+        ArticleRepository repository = ArticleRepository.getInstance();
+        repository.clear();
+        User author = login.registerUser("author", "pw", "Instructor", false, null);
+        author.addHelpArticle(new User.HelpArticle(1, "First", "desc", Arrays.asList("one"),
+                "body", new ArrayList<>(), Arrays.asList("general"), "Beginner"));
+        author.addHelpArticle(new User.HelpArticle(2, "Second", "desc", Arrays.asList("two"),
+                "body", new ArrayList<>(), Arrays.asList("general"), "Beginner"));
+
+        File base = File.createTempFile("articles", ".bak");
+        File delta = File.createTempFile("articles", ".delta");
+        base.deleteOnExit();
+        delta.deleteOnExit();
+        login.backupHelpArticles(base.getAbsolutePath());
+        assertTrue(repository.getChangedIds().isEmpty());
+
+        author.updateHelpArticle(1, "First Updated", "desc", Arrays.asList("one"),
+                "body", new ArrayList<>(), Arrays.asList("general"), "Beginner");
+        author.removeHelpArticle(2);
+        author.addHelpArticle(new User.HelpArticle(3, "Third", "desc", Arrays.asList("three"),
+                "body", new ArrayList<>(), Arrays.asList("general"), "Beginner"));
+        login.backupHelpArticleChanges(delta.getAbsolutePath());
+
+        login.restoreHelpArticles(base.getAbsolutePath(), Arrays.asList(delta.getAbsolutePath()), false);
+        assertEquals(2, repository.size());
+        assertEquals("First Updated", repository.get(1).getTitle());
+        assertNull(repository.get(2));
+        assertNotNull(repository.get(3));
+
+        // The restored state continues the chain, and deltas may be listed in any order
+        assertTrue(repository.getChangedIds().isEmpty());
+        File second = File.createTempFile("articles", ".delta");
+        second.deleteOnExit();
+        author.addHelpArticle(new User.HelpArticle(4, "Fourth", "desc", Arrays.asList("four"),
+                "body", new ArrayList<>(), Arrays.asList("general"), "Beginner"));
+        assertTrue(login.backupHelpArticleChanges(second.getAbsolutePath()));
+        login.restoreHelpArticles(base.getAbsolutePath(), Arrays.asList(second.getAbsolutePath(), delta.getAbsolutePath()), false);
+        assertEquals(3, repository.size());
+        assertNotNull(repository.get(4));
+
+        // A delta restored without its base is rejected and changes nothing
+        login.restoreHelpArticles(delta.getAbsolutePath(), new ArrayList<>(), false);
+        assertEquals(3, repository.size());
+        assertNull(login.restoreHelpArticles(base.getAbsolutePath(), Arrays.asList(second.getAbsolutePath()), false));
+        assertEquals(3, repository.size());
+        login.deleteUser("author");
+    }
+
+    @Test
+    public void testMergeRestoreCounts() throws Exception {
+        ArticleRepository repository = ArticleRepository.getInstance();
+        repository.clear();
+        User author = login.registerUser("author", "pw", "Instructor", false, null);
+        author.addHelpArticle(new User.HelpArticle(1, "Same", "desc", Arrays.asList("one"),
+                "body", new ArrayList<>(), Arrays.asList("general"), "Beginner"));
+        author.addHelpArticle(new User.HelpArticle(2, "Changed", "desc", Arrays.asList("two"),
+                "body", new ArrayList<>(), Arrays.asList("general"), "Beginner"));
+        author.addHelpArticle(new User.HelpArticle(3, "Deleted", "desc", Arrays.asList("three"),
+                "body", new ArrayList<>(), Arrays.asList("general"), "Beginner"));
+
+        File file = File.createTempFile("articles", ".bak");
+        file.deleteOnExit();
+        login.backupHelpArticles(file.getAbsolutePath());
+        author.updateHelpArticle(2, "Changed Locally", "desc", Arrays.asList("two"),
+                "body", new ArrayList<>(), Arrays.asList("general"), "Beginner");
+        author.removeHelpArticle(3);
+
+        RestoreResult result = login.restoreHelpArticles(file.getAbsolutePath(), true);
+        assertEquals(1, result.getAdded());
+        assertEquals(1, result.getSkipped());
+        assertEquals(1, result.getConflicted());
+        assertEquals("Changed Locally", repository.get(2).getTitle()); // Conflicts keep the stored copy
+        assertNull(login.restoreHelpArticles(file.getAbsolutePath() + ".missing", true));
+        login.deleteUser("author");
+    }
+
+    @Test
+    public void testImportHelpArticles() throws Exception {
+        ArticleRepository repository = ArticleRepository.getInstance();
+        repository.clear();
+        File jsonl = File.createTempFile("articles", ".jsonl");
+        jsonl.deleteOnExit();
+        Files.write(jsonl.toPath(), Arrays.asList(
+                "{\"id\": 101, \"title\": \"Java Basics\", \"keywords\": [\"java\"], \"groups\": [\"intro\"], \"level\": \"beginner\"}",
+                "",
+                "{\"title\": \"Escaped \\\"quotes\\\"\", \"body\": \"line\\nbreak\"}",
+                "{\"id\": 102, \"title\": \"\"}",
+                "{\"id\": 101, \"title\": \"Duplicate\"}",
+                "{\"title\": \"Bad level\", \"level\": \"Guru\"}",
+                "not json"), StandardCharsets.UTF_8);
+
+        ImportResult result = login.importHelpArticles(jsonl.getAbsolutePath());
+        assertEquals(2, result.getImported());
+        assertEquals(4, result.getRejected());
+        assertEquals(Arrays.asList("line 4: missing title", "line 5: duplicate id 101",
+                "line 6: unknown level \"Guru\"", "line 7: expected '{' at column 1"), result.getRejections());
+        assertEquals("Beginner", repository.get(101).getLevel());
+        assertEquals(Arrays.asList(101L), repository.findByGroup("intro"));
+        assertEquals(1, repository.search("quotes").size());
+
+        File csv = File.createTempFile("articles", ".csv");
+        csv.deleteOnExit();
+        Files.write(csv.toPath(), Arrays.asList(
+                "id,title,keywords,body,groups,level",
+                "201,CSV Article,\"csv;import\",\"Body with, comma and \"\"quotes\"\"",
+                "and a second line\",intro,Advanced",
+                "202,Too few cells",
+                "101,Clashes with JSON import,,,,"), StandardCharsets.UTF_8);
+
+        result = login.importHelpArticles(csv.getAbsolutePath());
+        assertEquals(1, result.getImported());
+        assertEquals(Arrays.asList("line 4: expected 6 cells but found 2", "line 5: duplicate id 101"), result.getRejections());
+        assertEquals("Body with, comma and \"quotes\"\nand a second line", repository.get(201).getBody());
+        assertEquals(Arrays.asList(101L, 201L), repository.findByGroup("intro"));
+        assertEquals(Arrays.asList(201L), repository.search("csv import"));
+
+        User reader = login.registerUser("importReader", "pw", "Student", false, null);
+        assertEquals(3, reader.getAllHelpArticles().size()); // Imported articles are shared
+        assertNull(login.importHelpArticles(jsonl.getAbsolutePath() + ".txt"));
+        login.deleteUser("importReader");
+    }
+
+    @Test
+    public void testDataDirectoryRecovery() throws Exception {
+        ArticleRepository repository = ArticleRepository.getInstance();
+        repository.clear();
+        Path directory = Files.createTempDirectory("donut-data");
+        long snapshotBodyOffset;
+        long backupGeneration;
+        File backup = File.createTempFile("articles", ".bak");
+        backup.deleteOnExit();
+        assertTrue(login.openDataDirectory(directory.toString()));
+        try {
+            User alice = login.registerUser("walAlice", "pw1", "Instructor", false, null);
+            alice.addHelpArticle(new User.HelpArticle(501, "Durable Article", "desc", Arrays.asList("wal"),
+                    "body", new ArrayList<>(), Arrays.asList("storage"), "Beginner"));
+            repository.add(repository.get(501), true); // Owned and shared
+            login.registerUser("walBob", "pw2", "Student", false, null);
+            login.resetPassword("walAlice", "pw3");
+            assertTrue(login.compactDataDirectory());
+            snapshotBodyOffset = repository.get(501).getStoredBody().getOffset();
+            assertTrue(login.backupHelpArticles(backup.getAbsolutePath()));
+            backupGeneration = repository.getBackupGeneration();
+            login.updateEmail(alice, "alice@example.com");
+            alice.addHelpArticle(new User.HelpArticle(502, "Logged After Snapshot", "desc", Arrays.asList("wal"),
+                    "body", new ArrayList<>(), Arrays.asList("storage"), "Expert"));
+            alice.updateHelpArticle(501, "Durable Article v2", "desc", Arrays.asList("wal"),
+                    "body", new ArrayList<>(), Arrays.asList("storage"), "Beginner");
+            login.deleteUser("walBob");
+        } finally {
+            login.closeDataDirectory();
+        }
+
+        // Simulate a crash mid-write, then a restart that starts from empty memory
+        Path newestSegment;
+        try (Stream<Path> files = Files.list(directory)) {
+            newestSegment = files.filter(p -> p.toString().endsWith(".log")).sorted().reduce((a, b) -> b).get();
+        }
+        Files.write(newestSegment, new byte[] {0, 0, 1, 0, 7}, StandardOpenOption.APPEND);
+        for (User user : login.listUsers()) {
+            login.deleteUser(user.getUsername());
+        }
+        repository.clear();
+
+        assertTrue(login.openDataDirectory(directory.toString()));
+        try {
+            User alice = login.findUser("walAlice");
+            assertNotNull(alice);
+            assertEquals("Instructor", alice.getRole());
+            assertTrue(login.authenticate("walAlice", "pw3"));
+            assertSame(alice, login.findUserByEmail("alice@example.com"));
+            assertNull(login.findUser("walBob"));
+            assertEquals(Arrays.asList(501L, 502L), alice.getVisibleArticleIds());
+            assertEquals("Durable Article v2", repository.get(501).getTitle());
+            assertEquals("body", repository.get(502).getBody());
+            assertNotNull(repository.get(502).getStoredBody()); // Bodies are read back from the mapped body file
+            assertFalse(repository.isShared(502));
+            assertTrue(repository.isShared(501));
+            assertEquals("walAlice", repository.getOwner(501));
+            assertEquals(snapshotBodyOffset, repository.get(501).getStoredBody().getOffset()); // Unchanged body not appended again
+            assertEquals(backupGeneration, repository.getBackupGeneration()); // Incremental backups survive a restart
+            assertEquals(Arrays.asList(502L, 501L), repository.getChangedIds());
+            assertTrue(login.compactDataDirectory());
+            try (Stream<Path> files = Files.list(directory)) {
+                assertEquals(1, files.filter(p -> p.toString().endsWith(".snap")).count()); // Older log segments were compacted away
+            }
+        } finally {
+            login.closeDataDirectory();
+            login.deleteUser("walAlice");
+        }
+
+        // The backup state is also carried by snapshots
+        repository.clear();
+        repository.restoreBackupState(0, false, new ArrayList<>());
+        assertTrue(login.openDataDirectory(directory.toString()));
+        try {
+            assertEquals(backupGeneration, repository.getBackupGeneration());
+            assertEquals(Arrays.asList(502L, 501L), repository.getChangedIds());
+        } finally {
+            login.closeDataDirectory();
+            login.deleteUser("walAlice");
+        }
+    }
+
+    @Test
+    public void testAuthenticateAsync() throws Exception {
+        login.registerUser("asyncUser", "asyncPass", "Student", false, null);
+        assertTrue(login.authenticateAsync("asyncUser", "asyncPass").get());
+        assertFalse(login.authenticateAsync("asyncUser", "wrongPass").get());
+        assertFalse(login.authenticateAsync("nobody", "asyncPass").get());
+
+        // Registration and password resets hash on the same pool
+        assertEquals("Admin", login.registerUserAsync("asyncAdmin", "adminPass", "Admin", false, null).get().getRole());
+        assertTrue(login.authenticate("asyncAdmin", "adminPass"));
+        assertTrue(login.resetPasswordAsync("asyncUser", "newPass").get());
+        assertTrue(login.authenticate("asyncUser", "newPass"));
+        assertFalse(login.resetPasswordAsync("nobody", "newPass").get());
+        login.deleteUser("asyncUser");
+        login.deleteUser("asyncAdmin");
+    }
+
+    @Test
+    public void testBackupProgressAndCancel() throws Exception {
+        ArticleRepository repository = ArticleRepository.getInstance();
+        repository.clear();
+        for (int i = 0; i < 3000; i++) {
+            repository.add(new User.HelpArticle(i, "Article " + i, "desc", Arrays.asList("k"),
+                    "body", new ArrayList<>(), Arrays.asList("general"), "Beginner"), true);
+        }
+        File file = File.createTempFile("articles", ".bak");
+        file.deleteOnExit();
+
+        List<Long> reported = new ArrayList<>();
+        assertTrue(login.backupHelpArticles(file.getAbsolutePath(), (articles, bytes) -> reported.add(articles)));
+        assertEquals(Arrays.asList(1024L, 2048L, 3000L), reported);
+
+        RestoreResult result = login.restoreHelpArticles(file.getAbsolutePath(), new ArrayList<>(), false,
+                (articles, bytes) -> articles < 2048);
+        assertTrue(result.isCancelled());
+        assertEquals(2048, result.getAdded());
+
+        assertFalse(login.backupHelpArticles(file.getAbsolutePath(), (articles, bytes) -> false));
+        assertFalse(file.exists()); // Cancelled backups are removed
+
+        assertFalse(login.backupHelpArticles(file.getAbsolutePath(), (articles, bytes) -> {
+            throw new IllegalStateException("listener failed");
+        }));
+        assertFalse(file.exists()); // So are backups that fail part way through
+    }
+
+    @Test
+    public void testOtpExpiryScheduling() throws Exception {
+        // The wheel runs each task on the first tick at or after its deadline, however far out it is
+        TimingWheel wheel = new TimingWheel(10, 0);
+        List<Long> ran = new ArrayList<>();
+        for (long deadline : new long[] {5, 640, 41_000, 3_000_000, 20_000_000_000_000L}) {
+            wheel.schedule(deadline, () -> ran.add(deadline));
+        }
+        TimingWheel.Timeout cancelled = wheel.schedule(700, () -> ran.add(-1L));
+        assertTrue(cancelled.cancel());
+        assertFalse(cancelled.cancel());
+        wheel.advanceTo(639);
+        assertEquals(Arrays.asList(5L), ran);
+        wheel.advanceTo(3_000_000);
+        assertEquals(Arrays.asList(5L, 640L, 41_000L, 3_000_000L), ran);
+        assertEquals(1, wheel.size());
+
+        // Accounts are marked expired in the background, without waiting for a login attempt
+        login.registerUser("otpUser", "otpPass", "Student", true, LocalDateTime.now().plusNanos(300_000_000));
+        User user = login.findUser("otpUser");
+        assertFalse(user.isOtpExpired());
+        assertTrue(login.authenticate("otpUser", "otpPass"));
+        for (int i = 0; i < 100 && !user.isOtpExpired(); i++) {
+            Thread.sleep(20);
+        }
+        assertTrue(user.isOtpExpired());
+        assertFalse(login.authenticate("otpUser", "otpPass"));
+
+        assertTrue(login.resetPassword("otpUser", "newPass"));
+        assertFalse(user.isOtpExpired());
+        assertTrue(login.authenticate("otpUser", "newPass"));
+
+        // Setting a new one-time password or expiry directly reschedules it too
+        user.setOneTimePassword(true);
+        user.setOtpExpiry(LocalDateTime.now().minusMinutes(1));
+        assertTrue(user.isOtpExpired());
+        user.setOtpExpiry(LocalDateTime.now().plusDays(1));
+        assertFalse(user.isOtpExpired());
+        assertTrue(login.authenticate("otpUser", "newPass"));
+        login.deleteUser("otpUser");
+    }
+
+    @Test
+    public void testMetrics() throws Exception {
+        Metrics metrics = Metrics.getInstance();
+        metrics.reset();
+        login.registerUser("metricsUser", "metricsPass", "Student", false, null);
+        login.registerUser("expiredUser", "otpPass", "Student", true, LocalDateTime.now().minusDays(1));
+        assertTrue(login.authenticate("metricsUser", "metricsPass"));
+        assertFalse(login.authenticate("metricsUser", "wrongPass"));
+        assertFalse(login.authenticate("expiredUser", "otpPass"));
+        assertEquals(1, metrics.getAuthenticationSuccesses());
+        assertEquals(1, metrics.getAuthenticationFailures());
+        assertEquals(1, metrics.getAuthenticationOtpExpired());
+        assertEquals(2, metrics.getRegistrations());
+        assertTrue(metrics.getAuthenticationLatency().getP50Micros() > 0);
+
+        // Readable over JMX
+        assertTrue(metrics.registerMBean());
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(Metrics.OBJECT_NAME);
+        assertEquals(1L, server.getAttribute(name, "AuthenticationSuccesses"));
+        CompositeData latency = (CompositeData) server.getAttribute(name, "AuthenticationLatency");
+        assertEquals(3L, latency.get("count"));
+        assertEquals(2, JMX.newMXBeanProxy(server, name, MetricsMXBean.class).getRegistrationLatency().getCount());
+
+        // Percentiles are within a bucket (about 3%) of the true values
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long i = 1; i <= 100_000; i++) {
+            histogram.record(i * 1000);
+        }
+        assertEquals(50_000_000, histogram.getPercentile(0.5), 50_000_000 * 0.035);
+        assertEquals(99_000_000, histogram.getPercentile(0.99), 99_000_000 * 0.035);
+        assertEquals(100_000_000, histogram.getMax());
+        assertEquals(Long.MAX_VALUE, LatencyHistogram.highestValueIn(LatencyHistogram.indexOf(Long.MAX_VALUE)));
+        login.deleteUser("metricsUser");
+        login.deleteUser("expiredUser");
+    }
+
     /**@Test
     public void testListUsers() {
         login.registerUser("user1", "password1", false, null);
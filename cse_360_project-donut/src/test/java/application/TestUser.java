@@ -4,7 +4,19 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class TestUser {
 
@@ -12,6 +24,8 @@ public class TestUser {
 
     @BeforeEach
     public void setup() {
+        PasswordHasher.setIterations(1_000); // Keep hashing cheap in tests
+        ArticleRepository.getInstance().clear(); // Articles live in a shared repository
         user = new User("testUser", "password123", "Student");
     }
 
@@ -22,9 +36,21 @@ public class TestUser {
 
     @Test
     public void testPassword() {
-        assertArrayEquals("password123".getBytes(), user.getPassword());
-        user.setPassword("newPassword456".getBytes());
-        assertArrayEquals("newPassword456".getBytes(), user.getPassword());
+        assertTrue(user.verifyPassword("password123"));
+        assertFalse(user.verifyPassword("password12"));
+        user.setPassword("newPassword456");
+        assertTrue(user.verifyPassword("newPassword456"));
+        assertFalse(user.verifyPassword("password123"));
+    }
+
+    @Test
+    public void testPasswordIsSaltedHash() {
+        User other = new User("otherUser", "password123", "Student");
+        PasswordHasher.Hash hash = user.getPasswordHash();
+        assertFalse(new String(hash.getHash()).contains("password123"));
+        assertFalse(Arrays.equals(hash.getSalt(), other.getPasswordHash().getSalt()));
+        assertFalse(Arrays.equals(hash.getHash(), other.getPasswordHash().getHash())); // Same password, different salt
+        assertEquals(PasswordHasher.getIterations(), hash.getIterations());
     }
 
     @Test
@@ -66,4 +92,337 @@ public class TestUser {
         user.setAccountSetupComplete(true);
         assertTrue(user.isAccountSetupComplete());
     }
+
+    @Test
+    public void testSearchHelpArticles() {
+        user.addHelpArticle(new User.HelpArticle(1, "Intro to Java", "desc", Arrays.asList("java", " Basics"),
+                "body", Arrays.asList(), Arrays.asList("general"), "Beginner"));
+        user.addHelpArticle(new User.HelpArticle(2, "Eclipse Setup", "desc", Arrays.asList("ide"),
+                "body", Arrays.asList(), Arrays.asList("general"), "Beginner"));
+
+        List<User.HelpArticle> results = user.searchHelpArticles("JAVA");
+        assertEquals(1, results.size());
+        assertEquals(1, results.get(0).getId());
+        assertEquals(1, user.searchHelpArticles("basics").size()); // Keyword tokens are trimmed
+        assertEquals(1, user.searchHelpArticles("eclipse setup").size());
+        assertTrue(user.searchHelpArticles("missing").isEmpty());
+
+        user.updateHelpArticle(2, "Java IDE Setup", "desc", Arrays.asList("ide"),
+                "body", Arrays.asList(), Arrays.asList("general"), "Beginner");
+        assertEquals(2, user.searchHelpArticles("java").size());
+        assertTrue(user.searchHelpArticles("eclipse").isEmpty());
+
+        user.removeHelpArticle(1);
+        assertEquals(2, user.searchHelpArticles("java").get(0).getId());
+    }
+
+    @Test
+    public void testSearchRanking() {
+        user.addHelpArticle(new User.HelpArticle(1, "Setup guide", "Installing the tools", Arrays.asList("setup"),
+                "Mentions backups once, near the end.", Arrays.asList(), Arrays.asList("general"), "Beginner"));
+        user.addHelpArticle(new User.HelpArticle(2, "Backups", "How backups work", Arrays.asList("backup"),
+                "Backups are written to a file. Restore backups from the same screen.", Arrays.asList(), Arrays.asList("general"), "Beginner"));
+        user.addHelpArticle(new User.HelpArticle(3, "Restoring", "Restore a backup file", Arrays.asList("restore"),
+                "Pick the backups file to restore.", Arrays.asList(), Arrays.asList("general"), "Beginner"));
+
+        List<User.HelpArticle> results = user.searchHelpArticles("backups");
+        assertEquals(Arrays.asList(2L, 3L, 1L), idsOf(results)); // Title and frequent mentions rank first
+        assertEquals(Arrays.asList(2L), idsOf(user.searchHelpArticles("backups", 1)));
+        assertEquals(Arrays.asList(3L, 2L), idsOf(user.searchHelpArticles("restore file")));
+        assertEquals(1, user.searchHelpArticles("installing").size()); // Descriptions are searched too
+
+        User other = new User("otherUser", "password456", "Instructor");
+        ArticleRepository.getInstance().add(new User.HelpArticle(4, "Backups backups", "desc", Arrays.asList(),
+                "body", Arrays.asList(), Arrays.asList("general"), "Beginner"), false);
+        assertEquals(Arrays.asList(2L, 3L), idsOf(user.searchHelpArticles("backups", 2))); // Others' articles are skipped
+        assertTrue(other.searchHelpArticles("backups", 10).isEmpty());
+    }
+
+    @Test
+    public void testFuzzySearch() {
+        user.addHelpArticle(new User.HelpArticle(1, "Encryption basics", "desc", Arrays.asList("security"),
+                "body", Arrays.asList(), Arrays.asList("general"), "Beginner"));
+        user.addHelpArticle(new User.HelpArticle(2, "Backup schedule", "desc", Arrays.asList("backup"),
+                "body", Arrays.asList(), Arrays.asList("general"), "Beginner"));
+
+        assertEquals(1, user.searchHelpArticles("encrytpion").get(0).getId()); // Two edits away
+        assertEquals(2, user.searchHelpArticles("bakup schedule").get(0).getId());
+        assertEquals(1, user.searchHelpArticles("securty", 5).size());
+        assertTrue(user.searchHelpArticles("bakup security").isEmpty()); // Corrected tokens must still all match
+        assertTrue(user.searchHelpArticles("bdy").isEmpty()); // Short tokens allow one edit, and only titles and keywords are corrected
+        assertEquals(1, FuzzyIndex.distance("kitten", "sitten", 2));
+        assertEquals(3, FuzzyIndex.distance("kitten", "sitting", 2)); // Past the limit
+
+        int distance = FuzzyIndex.getMaxDistance();
+        FuzzyIndex.setMaxDistance(1);
+        try {
+            assertTrue(user.searchHelpArticles("encrytpion").isEmpty());
+        } finally {
+            FuzzyIndex.setMaxDistance(distance);
+        }
+    }
+
+    @Test
+    public void testQueryCache() {
+        QueryCache cache = ArticleRepository.getInstance().getQueryCache();
+        user.addHelpArticle(new User.HelpArticle(1, "Java basics", "desc", Arrays.asList("java"),
+                "body", Arrays.asList(), Arrays.asList("general"), "Beginner"));
+        user.addHelpArticle(new User.HelpArticle(2, "Eclipse setup", "desc", Arrays.asList("ide"),
+                "body", Arrays.asList(), Arrays.asList("tools"), "Beginner"));
+
+        long hits = cache.getHits();
+        assertEquals(1, user.searchHelpArticles("java basics").size());
+        assertEquals(1, user.searchHelpArticles("Basics  JAVA").size()); // Same normalized query
+        assertEquals(1, user.getHelpArticlesByGroup("tools").size());
+        assertEquals(1, user.getHelpArticlesByGroup(" tools").size());
+        assertEquals(hits + 2, cache.getHits());
+
+        // Changing an article without the query's tokens or groups keeps the entries
+        user.updateHelpArticle(2, "Eclipse install", "desc", Arrays.asList("ide"),
+                "body", Arrays.asList(), Arrays.asList("tools"), "Beginner");
+        assertEquals(1, user.searchHelpArticles("java basics").size());
+        assertEquals(hits + 3, cache.getHits());
+        assertEquals(1, user.getHelpArticlesByGroup("tools").size()); // Dropped, the article is in the group
+
+        // Adding an article with the tokens drops the entry
+        user.addHelpArticle(new User.HelpArticle(3, "More Java basics", "desc", Arrays.asList(),
+                "body", Arrays.asList(), Arrays.asList("tools"), "Beginner"));
+        assertEquals(2, user.searchHelpArticles("java basics").size());
+        assertEquals(2, user.getHelpArticlesByGroup("tools").size());
+        user.removeHelpArticle(1);
+        assertEquals(1, user.searchHelpArticles("java basics").size());
+        assertTrue(cache.getInvalidations() > 0);
+
+        // Cached matches are ranked against the current average length, which unrelated articles change
+        ArticleRepository repository = ArticleRepository.getInstance();
+        user.addHelpArticle(new User.HelpArticle(10, "Kotlin", "desc", Arrays.asList(),
+                String.join(" ", Collections.nCopies(20, "word")), Arrays.asList(), Arrays.asList("general"), "Beginner"));
+        user.addHelpArticle(new User.HelpArticle(11, "Intro", "desc", Arrays.asList(),
+                "kotlin", Arrays.asList(), Arrays.asList("general"), "Beginner"));
+        assertEquals(Arrays.asList(11L, 10L), repository.search("kotlin"));
+        user.addHelpArticle(new User.HelpArticle(12, "Long", "desc", Arrays.asList(),
+                String.join(" ", Collections.nCopies(300, "filler")), Arrays.asList(), Arrays.asList("general"), "Beginner"));
+        hits = cache.getHits();
+        assertEquals(Arrays.asList(10L, 11L), repository.search("kotlin"));
+        assertEquals(hits + 1, cache.getHits());
+        assertEquals(repository.search("kotlin", Integer.MAX_VALUE, id -> true), repository.search("kotlin"));
+    }
+
+    @Test
+    public void testArticleSnapshots() {
+        user.addHelpArticle(new User.HelpArticle(1, "First", "desc", Arrays.asList(),
+                "body", Arrays.asList(), Arrays.asList("general"), "Beginner"));
+        List<User.HelpArticle> before = user.getAllHelpArticles();
+        Snapshot<User.HelpArticle> snapshot = ArticleRepository.getInstance().snapshot();
+        assertSame(before, user.getAllHelpArticles()); // Shared until something changes
+        assertSame(snapshot, ArticleRepository.getInstance().snapshot());
+        assertThrows(UnsupportedOperationException.class, () -> before.clear());
+
+        user.addHelpArticle(new User.HelpArticle(2, "Second", "desc", Arrays.asList(),
+                "body", Arrays.asList(), Arrays.asList("general"), "Beginner"));
+        assertEquals(1, before.size()); // Earlier snapshots keep their view
+        assertEquals(2, user.getAllHelpArticles().size());
+        assertTrue(ArticleRepository.getInstance().snapshot().getVersion() > snapshot.getVersion());
+        assertTrue(new User("otherUser", "password456", "Instructor").getAllHelpArticles().isEmpty());
+    }
+
+    @Test
+    public void testSuggestHelpArticles() {
+        user.addHelpArticle(new User.HelpArticle(1, "Java  Basics", "desc", Arrays.asList("jvm", "JAVA basics"),
+                "body", Arrays.asList(), Arrays.asList("general"), "Beginner"));
+        user.addHelpArticle(new User.HelpArticle(2, "Javadoc", "desc", Arrays.asList("docs"),
+                "body", Arrays.asList(), Arrays.asList("general"), "Beginner"));
+
+        assertEquals(Arrays.asList("Java Basics", "Javadoc"), user.suggestHelpArticles("ja", 8)); // Same phrase suggested once
+        assertEquals(Arrays.asList("Java Basics"), user.suggestHelpArticles("JAVA ", 8));
+        assertEquals(Arrays.asList("Java Basics"), user.suggestHelpArticles("j", 1));
+        assertEquals(Arrays.asList("jvm"), user.suggestHelpArticles("jv", 8));
+        assertTrue(user.suggestHelpArticles("x", 8).isEmpty());
+
+        user.updateHelpArticle(2, "Eclipse", "desc", Arrays.asList("docs"),
+                "body", Arrays.asList(), Arrays.asList("general"), "Beginner");
+        assertEquals(Arrays.asList("Java Basics"), user.suggestHelpArticles("ja", 8));
+        user.removeHelpArticle(1);
+        assertTrue(user.suggestHelpArticles("ja", 8).isEmpty());
+        assertTrue(new User("otherUser", "password456", "Instructor").suggestHelpArticles("ecl", 8).isEmpty());
+
+        // A prefix with nothing visible under it stops after the visit limit instead of walking the whole subtree
+        SuggestionIndex index = new SuggestionIndex();
+        for (int i = 0; i < 1000; i++) {
+            index.add(new User.HelpArticle(100 + i, "article " + i, "desc", Arrays.asList(),
+                    "body", Arrays.asList(), Arrays.asList("general"), "Beginner"));
+        }
+        int[] checked = {0};
+        int visits = SuggestionIndex.getMaxVisits();
+        SuggestionIndex.setMaxVisits(200);
+        try {
+            assertTrue(index.suggest("a", 8, id -> ++checked[0] < 0).isEmpty());
+            assertTrue(checked[0] < 200);
+            assertEquals(Arrays.asList("article 0"), index.suggest("a", 1, id -> true));
+        } finally {
+            SuggestionIndex.setMaxVisits(visits);
+        }
+    }
+
+    // Helper to list the IDs of articles
+    private static List<Long> idsOf(List<User.HelpArticle> articles) {
+        List<Long> ids = new ArrayList<>();
+        for (User.HelpArticle article : articles) {
+            ids.add(article.getId());
+        }
+        return ids;
+    }
+
+    @Test
+    public void testArticleVisibility() {
+        User other = new User("otherUser", "password456", "Instructor");
+        user.addHelpArticle(new User.HelpArticle(10, "Own Article", "desc", Arrays.asList("own"),
+                "body", Arrays.asList(), Arrays.asList("general"), "Beginner"));
+        ArticleRepository.getInstance().add(new User.HelpArticle(11, "Shared Article", "desc", Arrays.asList("shared"),
+                "body", Arrays.asList(), Arrays.asList("general"), "Beginner"), true);
+
+        assertEquals(2, user.getAllHelpArticles().size());
+        assertEquals(1, other.getAllHelpArticles().size());
+        assertTrue(other.searchHelpArticles("own").isEmpty());
+        assertSame(user.searchHelpArticles("shared").get(0), other.searchHelpArticles("shared").get(0));
+        assertEquals(2, ArticleRepository.getInstance().size()); // Each article is stored once
+
+        other.removeHelpArticle(10); // Not visible to the other user, so nothing happens
+        assertEquals(2, user.getAllHelpArticles().size());
+
+        user.removeHelpArticle(11); // A student only hides a shared article
+        assertEquals(1, user.getAllHelpArticles().size());
+        assertTrue(user.searchHelpArticles("shared").isEmpty());
+        assertEquals(1, other.getAllHelpArticles().size());
+        other.removeHelpArticle(11); // An instructor deletes it for everyone
+        assertFalse(ArticleRepository.getInstance().contains(11));
+    }
+
+    @Test
+    public void testHelpArticlesByGroup() {
+        user.addHelpArticle(new User.HelpArticle(21, "Loops", "desc", Arrays.asList("loops"),
+                "body", Arrays.asList(), Arrays.asList("java", " beginner"), "Beginner"));
+        user.addHelpArticle(new User.HelpArticle(22, "Streams", "desc", Arrays.asList("streams"),
+                "body", Arrays.asList(), Arrays.asList("java", "advanced"), "Advanced"));
+
+        assertEquals(2, user.getHelpArticlesByGroup("java").size());
+        assertEquals(21, user.getHelpArticlesByGroup("beginner").get(0).getId()); // Group names are trimmed
+        assertEquals(2, user.getHelpArticlesByGroup("all").size());
+        assertEquals(1, user.getHelpArticlesByGroups(Arrays.asList("java", "advanced"), true).size());
+        assertEquals(2, user.getHelpArticlesByGroups(Arrays.asList("beginner", "advanced"), false).size());
+
+        user.updateHelpArticle(22, "Streams", "desc", Arrays.asList("streams"),
+                "body", Arrays.asList(), Arrays.asList("advanced"), "Advanced");
+        assertEquals(1, user.getHelpArticlesByGroup("java").size());
+        user.removeHelpArticle(21);
+        assertTrue(user.getHelpArticlesByGroup("java").isEmpty());
+    }
+
+    @Test
+    public void testArticleIdAllocator() throws Exception {
+        ArticleIdAllocator allocator = new ArticleIdAllocator(5);
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                long previous = 0;
+                for (int i = 0; i < 50_000; i++) {
+                    long id = allocator.nextId();
+                    assertTrue(id > previous); // Increasing within a thread
+                    previous = id;
+                    ids.add(id);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(200_000, ids.size()); // No collisions across threads
+        for (long id : ids) {
+            assertEquals(5, ArticleIdAllocator.nodeOf(id));
+        }
+
+        // An ID restored from a backup taken "later" pushes new IDs past it
+        long restored = allocator.nextId() + (1000L << (ArticleIdAllocator.NODE_BITS + ArticleIdAllocator.SEQUENCE_BITS));
+        allocator.observe(restored);
+        assertTrue(allocator.nextId() > restored);
+
+        // Another node's IDs never collide, so they do not move this node's clock
+        long otherNode = new ArticleIdAllocator(6).nextId() + (1000L << (ArticleIdAllocator.NODE_BITS + ArticleIdAllocator.SEQUENCE_BITS));
+        allocator.observe(otherNode);
+        assertTrue(allocator.nextId() < otherNode);
+    }
+
+    @Test
+    public void testBodiesStoredOffHeap() throws Exception {
+        Path file = Files.createTempFile("bodies", ".dat");
+        ArticleBodyStore store = new ArticleBodyStore(file);
+        ArticleRepository.getInstance().setBodyStore(store);
+        try {
+            User.HelpArticle article = new User.HelpArticle(31, "Mapped", "desc", Arrays.asList("mmap"),
+                    "Body with unicode \u00fc\u20ac", Arrays.asList(), Arrays.asList("storage"), "Advanced");
+            user.addHelpArticle(article);
+            ArticleBodyStore.Body stored = article.getStoredBody();
+            assertNotNull(stored); // The body left the heap when the article was stored
+            assertEquals("Body with unicode \u00fc\u20ac", article.getBody());
+
+            user.updateHelpArticle(31, "Mapped", "desc", Arrays.asList("mmap"), "Updated body",
+                    Arrays.asList(), Arrays.asList("storage"), "Advanced");
+            assertEquals("Updated body", article.getBody());
+            assertNotEquals(stored.getOffset(), article.getStoredBody().getOffset());
+
+            // Java serialization still writes the body itself
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+                out.writeObject(article);
+            }
+            try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+                User.HelpArticle copy = (User.HelpArticle) in.readObject();
+                assertEquals("Updated body", copy.getBody());
+                assertNull(copy.getStoredBody());
+                assertTrue(copy.hasSameContent(article));
+            }
+
+            long offset = article.getStoredBody().getOffset();
+            int length = article.getStoredBody().getLength();
+            store.close();
+            try (ArticleBodyStore reopened = new ArticleBodyStore(file)) {
+                assertEquals("Updated body", reopened.get(offset, length).read());
+            }
+        } finally {
+            ArticleRepository.getInstance().setBodyStore(null);
+            store.close();
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testVocabularyEncodedFields() {
+        User.HelpArticle first = new User.HelpArticle(41, "First", "desc", Arrays.asList("java", "streams"),
+                "body", Arrays.asList(), Arrays.asList("intro", " advanced"), "Expert");
+        User.HelpArticle second = new User.HelpArticle(42, "First", "desc", Arrays.asList("java", "streams"),
+                "body", Arrays.asList(), Arrays.asList("intro", " advanced"), "Expert");
+        assertEquals(Arrays.asList("java", "streams"), first.getKeywords());
+        assertEquals(Arrays.asList("intro", " advanced"), first.getGroups()); // Getters return the values as given
+        assertEquals("Expert", first.getLevel());
+        assertTrue(first.hasSameContent(second));
+        assertTrue(first.isInGroup("intro"));
+        assertTrue(first.hasKeyword("streams"));
+        assertFalse(first.isInGroup("never-used-group"));
+        assertTrue(first.isInGroup("advanced")); // Trimmed like group listings, which find it under "advanced"
+        assertTrue(first.isInGroup(" intro "));
+        assertTrue(first.hasKeyword(" java"));
+        assertFalse(first.isInGroup("advanced2"));
+        assertThrows(UnsupportedOperationException.class, () -> first.getKeywords().add("more"));
+
+        second.setLevel(null);
+        second.setKeywords(null);
+        assertNull(second.getLevel());
+        assertNull(second.getKeywords());
+        assertFalse(first.hasSameContent(second));
+
+        user.addHelpArticle(first);
+        assertEquals(1, user.getHelpArticlesByGroup("advanced").size()); // Group lookups still trim
+    }
 }